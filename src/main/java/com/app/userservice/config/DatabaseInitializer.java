@@ -4,6 +4,7 @@ import com.app.userservice.entity.user.Role;
 import com.app.userservice.entity.user.User;
 import com.app.userservice.repository.RoleRepository;
 import com.app.userservice.repository.UserRepository;
+import com.app.userservice.service.RoleRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
@@ -23,6 +24,9 @@ public class DatabaseInitializer implements CommandLineRunner {
     @Autowired
     private RoleRepository roleRepository;
 
+    @Autowired
+    private RoleRegistry roleRegistry;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -71,10 +75,13 @@ public class DatabaseInitializer implements CommandLineRunner {
         
         // Create SYSTEM_ADMIN role
         createRoleIfNotFound("SYSTEM_ADMIN", "System administrator with full access");
+        
+        // Roles created above are not in the registry snapshot yet
+        roleRegistry.refresh();
     }
 
     private Role createRoleIfNotFound(String name, String description) {
-        return roleRepository.findByName(name)
+        return roleRegistry.findByName(name)
                 .orElseGet(() -> {
                     Role role = new Role();
                     role.setName(name);
@@ -97,10 +104,10 @@ public class DatabaseInitializer implements CommandLineRunner {
                     admin.setCreatedAt(LocalDateTime.now());
                     
                     Set<Role> roles = new HashSet<>();
-                    roles.add(roleRepository.findByName("ADMIN").orElseThrow());
-                    roles.add(roleRepository.findByName("USER").orElseThrow());
-                    roles.add(roleRepository.findByName("EMPLOYEE").orElseThrow());
-                    roles.add(roleRepository.findByName("MANAGER").orElseThrow());
+                    roles.add(roleRegistry.findByName("ADMIN").orElseThrow());
+                    roles.add(roleRegistry.findByName("USER").orElseThrow());
+                    roles.add(roleRegistry.findByName("EMPLOYEE").orElseThrow());
+                    roles.add(roleRegistry.findByName("MANAGER").orElseThrow());
 
                     admin.setRoles(roles);
                     
@@ -121,8 +128,8 @@ public class DatabaseInitializer implements CommandLineRunner {
                     sysAdmin.setCreatedAt(LocalDateTime.now());
                     
                     Set<Role> roles = new HashSet<>();
-                    roles.add(roleRepository.findByName("SYSTEM_ADMIN").orElseThrow());
-                    roles.add(roleRepository.findByName("USER").orElseThrow());
+                    roles.add(roleRegistry.findByName("SYSTEM_ADMIN").orElseThrow());
+                    roles.add(roleRegistry.findByName("USER").orElseThrow());
                     sysAdmin.setRoles(roles);
                     
                     return userRepository.save(sysAdmin);
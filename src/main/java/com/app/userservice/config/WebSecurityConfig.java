@@ -1,9 +1,13 @@
 package com.app.userservice.config;
 
+import com.app.userservice.security.crypto.BcryptCostCalibrator;
+import com.app.userservice.security.crypto.BoundedPasswordEncoder;
+import com.app.userservice.security.crypto.PasswordHashingExecutor;
 import com.app.userservice.security.jwt.AuthEntryPointJwt;
 import com.app.userservice.security.jwt.AuthTokenFilter;
 import com.app.userservice.security.service.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,6 +18,7 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -23,6 +28,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -35,6 +41,15 @@ public class WebSecurityConfig {
     @Autowired
     private AuthEntryPointJwt unauthorizedHandler;
     
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+    
+    @Value("${app.security.password-hash.target-ms:250}")
+    private long passwordHashTargetMs;
+    
+    @Value("${app.security.password-hash.strength:0}")
+    private int passwordHashStrength;
+    
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
         return new AuthTokenFilter();
@@ -57,7 +72,17 @@ public class WebSecurityConfig {
     
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = passwordHashStrength > 0
+                ? passwordHashStrength
+                : BcryptCostCalibrator.calibrate(passwordHashTargetMs);
+        
+        // New hashes are stored as "{bcrypt}..."; hashes without a prefix predate this and are plain BCrypt
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        
+        // BCrypt runs on a bounded pool so login bursts cannot tie up every request thread
+        return new BoundedPasswordEncoder(delegatingEncoder, passwordHashingExecutor);
     }
     
     @Bean
@@ -73,6 +98,7 @@ public class WebSecurityConfig {
                     .requestMatchers("/api/auth/**").permitAll()
                     .requestMatchers("/api/public/**").permitAll()
                     .requestMatchers("/swagger-ui/**", "/v3/api-docs/**").permitAll() // Cho phép truy cập Swagger UI
+                    .requestMatchers("/.well-known/jwks.json").permitAll()
                     .anyRequest().authenticated()
             );
         
@@ -1,13 +1,17 @@
 package com.app.userservice.controller;
 
 import com.app.userservice.dto.*;
+import com.app.userservice.security.jwt.AuthTokenFilter;
+import com.app.userservice.security.jwt.JwtClaims;
 import com.app.userservice.security.service.UserDetailsImpl;
 import com.app.userservice.service.AuthService;
 import com.app.userservice.service.TwoFactorAuthService;
 import com.app.userservice.service.VerificationService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -34,13 +38,31 @@ public class AuthController {
     private String appName;
 
     @PostMapping("/signin")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-        return ResponseEntity.ok(authService.authenticateUser(loginRequest));
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        return ResponseEntity.ok(authService.authenticateUser(loginRequest, request));
     }
     
     @PostMapping("/verify-otp")
-    public ResponseEntity<?> verifyOtp(@Valid @RequestBody TwoFactorRequest twoFactorRequest) {
-        return ResponseEntity.ok(authService.verifyOtp(twoFactorRequest.getVerificationCode()));
+    public ResponseEntity<?> verifyOtp(@Valid @RequestBody TwoFactorRequest twoFactorRequest, HttpServletRequest request) {
+        return ResponseEntity.ok(authService.verifyOtp(twoFactorRequest.getTempToken(),
+                twoFactorRequest.getVerificationCode(), request));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody TokenRefreshRequest refreshRequest) {
+        return ResponseEntity.ok(authService.refreshToken(refreshRequest));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(HttpServletRequest request,
+            @RequestBody(required = false) TokenRefreshRequest refreshRequest) {
+        JwtClaims claims = (JwtClaims) request.getAttribute(AuthTokenFilter.TOKEN_CLAIMS_ATTRIBUTE);
+        if (claims == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new MessageResponse("Không thể xác thực", false));
+        }
+        
+        String refreshToken = refreshRequest != null ? refreshRequest.getRefreshToken() : null;
+        return ResponseEntity.ok(authService.logout(claims, refreshToken));
     }
 
     @PostMapping("/signup")
@@ -0,0 +1,31 @@
+package com.app.userservice.controller;
+
+import com.app.userservice.security.jwt.JwtKeyProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+public class JwksController {
+
+    @Autowired
+    private JwtKeyProvider jwtKeyProvider;
+    
+    @Value("${app.jwt.keys.jwks-max-age:3600}")
+    private long jwksMaxAgeSeconds;
+    
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(jwksMaxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+                .body(jwtKeyProvider.getJwkSet());
+    }
+}
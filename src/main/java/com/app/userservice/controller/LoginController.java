@@ -1,6 +1,6 @@
 package com.app.userservice.controller;
 
-import com.app.userservice.entity.user.LoginHistory;
+import com.app.userservice.dto.LoginHistoryDTO;
 import com.app.userservice.entity.user.User;
 import com.app.userservice.repository.UserRepository;
 import com.app.userservice.security.service.UserDetailsImpl;
@@ -37,7 +37,7 @@ public class LoginController {
         User user = userRepository.findById(userDetails.getId())
                 .orElseThrow(() -> new RuntimeException("Người dùng không tồn tại"));
         
-        List<LoginHistory> loginHistories = loginHistoryService.getRecentLoginHistory(user);
+        List<LoginHistoryDTO> loginHistories = loginHistoryService.getRecentLoginHistory(user);
         
         return ResponseEntity.ok(loginHistories);
     }
@@ -0,0 +1,38 @@
+package com.app.userservice.controller;
+
+import com.app.userservice.dto.MessageResponse;
+import com.app.userservice.entity.user.LoginDailyRollup;
+import com.app.userservice.service.LoginRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/login-stats")
+@PreAuthorize("hasRole('SYSTEM_ADMIN') or hasRole('ADMIN')")
+public class LoginStatsController {
+
+    @Autowired
+    private LoginRollupService loginRollupService;
+    
+    @GetMapping("/daily")
+    public ResponseEntity<List<LoginDailyRollup>> getDailyRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long userId) {
+        return ResponseEntity.ok(loginRollupService.getDailyRollups(userId, from, to));
+    }
+    
+    @PostMapping("/daily/rebuild")
+    public ResponseEntity<MessageResponse> rebuildDay(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        int rows = loginRollupService.rollup(date);
+        return ResponseEntity.ok(new MessageResponse("Đã tổng hợp " + rows + " dòng cho ngày " + date, true));
+    }
+}
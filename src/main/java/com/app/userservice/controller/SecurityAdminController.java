@@ -0,0 +1,25 @@
+package com.app.userservice.controller;
+
+import com.app.userservice.dto.LoginAnomaly;
+import com.app.userservice.service.LoginAnomalyDetector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/admin/security")
+@PreAuthorize("hasRole('SYSTEM_ADMIN') or hasRole('ADMIN')")
+public class SecurityAdminController {
+
+    @Autowired
+    private LoginAnomalyDetector loginAnomalyDetector;
+    
+    @GetMapping("/anomalies")
+    public ResponseEntity<List<LoginAnomaly>> getRecentAnomalies() {
+        return ResponseEntity.ok(loginAnomalyDetector.getRecentDetections());
+    }
+}
@@ -2,13 +2,17 @@ package com.app.userservice.controller;
 
 import com.app.userservice.dto.MessageResponse;
 import com.app.userservice.dto.UserAdminDTO;
+import com.app.userservice.dto.UserImportResult;
 import com.app.userservice.service.UserAdminService;
+import com.app.userservice.service.UserImportService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -21,6 +25,9 @@ public class UserAdminController {
     @Autowired
     private UserAdminService userAdminService;
     
+    @Autowired
+    private UserImportService userImportService;
+    
     @GetMapping
     public ResponseEntity<List<UserAdminDTO>> getAllUsers() {
         List<UserAdminDTO> users = userAdminService.getAllUsers();
@@ -115,4 +122,27 @@ public class UserAdminController {
         Map<String, Object> stats = userAdminService.getUserStats();
         return ResponseEntity.ok(stats);
     }
+    
+    @GetMapping("/online")
+    public ResponseEntity<Map<String, Object>> getOnlineUsers() {
+        return ResponseEntity.ok(userAdminService.getOnlineUsers());
+    }
+    
+    @GetMapping("/stats/active-by-company")
+    public ResponseEntity<Map<String, Object>> getCompanyActiveUsers(@RequestParam(defaultValue = "30") int days) {
+        Map<String, Object> stats = userAdminService.getCompanyActiveUsers(Math.max(1, Math.min(days, 90)));
+        return ResponseEntity.ok(stats);
+    }
+    
+    /**
+     * Body is read as a stream (text/csv with a header row, or application/x-ndjson), never buffered whole
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<UserImportResult> importUsers(HttpServletRequest request) throws IOException {
+        String format = request.getContentType().startsWith("application/x-ndjson")
+                ? UserImportService.FORMAT_NDJSON
+                : UserImportService.FORMAT_CSV;
+        UserImportResult result = userImportService.importUsers(request.getInputStream(), format);
+        return ResponseEntity.ok(result);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.app.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FailedAttemptResult {
+    private int failedAttempt;
+    private boolean accountNonLocked;
+}
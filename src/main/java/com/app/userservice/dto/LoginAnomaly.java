@@ -0,0 +1,18 @@
+package com.app.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginAnomaly {
+    private String type; // IP_MULTI_USERNAME, USERNAME_MULTI_IP, IMPOSSIBLE_TRAVEL
+    private String subject; // IP hoặc username
+    private long count;
+    private String detail;
+    private LocalDateTime detectedAt;
+}
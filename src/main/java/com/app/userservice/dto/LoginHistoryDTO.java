@@ -0,0 +1,40 @@
+package com.app.userservice.dto;
+
+import com.app.userservice.entity.user.LoginHistory;
+import com.app.userservice.entity.user.UserAgentEntry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Login history as returned by the API; keeps the userAgent/deviceInfo strings clients read before
+ * the User-Agent moved to the user_agents dictionary.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginHistoryDTO {
+    private Long id;
+    private String ipAddress;
+    private String userAgent;
+    private String deviceInfo; // Mobile, Tablet, Desktop, Bot
+    private boolean loginStatus;
+    private String loginMethod;
+    private LocalDateTime loginTime;
+    private LocalDateTime logoutTime;
+    private Long sessionDuration;
+    private String failureReason;
+    private String sessionId;
+
+    public static LoginHistoryDTO fromEntity(LoginHistory history) {
+        UserAgentEntry entry = history.getUserAgent();
+        // Rows written before the dictionary still carry the raw columns
+        String userAgent = entry != null ? entry.getUserAgent() : history.getLegacyUserAgent();
+        String deviceInfo = entry != null ? entry.getDeviceClass() : history.getLegacyDeviceInfo();
+        return new LoginHistoryDTO(history.getId(), history.getIpAddress(), userAgent, deviceInfo,
+                history.isLoginStatus(), history.getLoginMethod(), history.getLoginTime(), history.getLogoutTime(),
+                history.getSessionDuration(), history.getFailureReason(), history.getSessionId());
+    }
+}
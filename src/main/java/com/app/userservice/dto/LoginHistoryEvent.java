@@ -0,0 +1,26 @@
+package com.app.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One login_history row waiting to be written; also the line format of the spill file. An event
+ * with logoutTime set closes the session sessionId instead, and only carries those two fields.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginHistoryEvent {
+    private Long userId;
+    private String ipAddress;
+    private String userAgent;
+    private boolean loginStatus;
+    private String loginMethod;
+    private LocalDateTime loginTime;
+    private String failureReason;
+    private String sessionId;
+    private LocalDateTime logoutTime;
+}
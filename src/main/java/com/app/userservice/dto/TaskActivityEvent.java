@@ -0,0 +1,31 @@
+package com.app.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Something happened to a task; published by TaskService and collected into notification digests.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskActivityEvent {
+    public static final String CREATED = "CREATED";
+    public static final String UPDATED = "UPDATED";
+    public static final String STATUS_CHANGED = "STATUS_CHANGED";
+    public static final String PROGRESS_UPDATED = "PROGRESS_UPDATED";
+    public static final String COMMENTED = "COMMENTED";
+    public static final String ATTACHMENT_ADDED = "ATTACHMENT_ADDED";
+
+    private Long taskId;
+    private String taskTitle;
+    private String action;
+    private String detail;
+    private Long actorUserId;
+    private Set<Long> recipientUserIds;
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,10 @@
+package com.app.userservice.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class TokenRefreshRequest {
+    @NotBlank(message = "Refresh token is required")
+    private String refreshToken;
+}
@@ -9,4 +9,7 @@ public class TwoFactorRequest {
     @NotBlank(message = "Mã xác thực không được để trống")
     @Pattern(regexp = "^[0-9]{6}$", message = "Mã xác thực phải là 6 chữ số")
     private String verificationCode;
+    
+    // Temporary token returned by /signin when 2FA is required; only used by /verify-otp
+    private String tempToken;
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.app.userservice.entity.user;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Serialized HyperLogLog of the users active on one day, for one scope (global or a company).
+ * Each instance writes its own row; rows are merged when read.
+ */
+@Entity
+@Table(name = "active_user_sketches", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_active_user_sketches", columnNames = {"sketch_date", "scope", "instance_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActiveUserSketch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "sketch_date", nullable = false)
+    private LocalDate sketchDate;
+    
+    // GLOBAL hoặc COMPANY:<id>
+    @Column(name = "scope", length = 40, nullable = false)
+    private String scope;
+    
+    @Column(name = "instance_id", length = 36, nullable = false)
+    private String instanceId;
+    
+    @Lob
+    @Column(name = "registers", nullable = false, length = 1048576)
+    private byte[] registers;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
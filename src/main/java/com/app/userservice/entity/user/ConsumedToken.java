@@ -0,0 +1,38 @@
+package com.app.userservice.entity.user;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks a signed verification/reset token as used; the token itself is never stored.
+ */
+@Entity
+@Table(name = "consumed_tokens", indexes = {
+    @Index(name = "idx_consumed_tokens_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConsumedToken {
+    // SHA-256 của token (hex)
+    @Id
+    @Column(name = "token_hash", length = 64)
+    private String tokenHash;
+    
+    @Column(name = "token_type", length = 20, nullable = false)
+    private String tokenType;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "consumed_at", nullable = false)
+    private LocalDateTime consumedAt;
+    
+    // Sau thời điểm này token đã hết hạn nên bản ghi có thể được dọn
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
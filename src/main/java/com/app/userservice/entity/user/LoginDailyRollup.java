@@ -0,0 +1,39 @@
+package com.app.userservice.entity.user;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "login_daily_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_login_daily_rollups_user_date", columnNames = {"user_id", "rollup_date"})
+}, indexes = {
+    @Index(name = "idx_login_daily_rollups_date", columnList = "rollup_date")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginDailyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+    
+    // Số lần đăng nhập thành công trong ngày
+    @Column(name = "logins", nullable = false)
+    private int logins;
+    
+    @Column(name = "failures", nullable = false)
+    private int failures;
+    
+    @Column(name = "distinct_ips", nullable = false)
+    private int distinctIps;
+}
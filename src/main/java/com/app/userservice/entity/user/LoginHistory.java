@@ -9,7 +9,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "login_history")
+@Table(name = "login_history", indexes = {
+    @Index(name = "idx_login_history_session_id", columnList = "session_id"),
+    @Index(name = "idx_login_history_user_time", columnList = "user_id, login_time")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,18 +21,25 @@ public class LoginHistory {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // No FK constraint: MySQL does not allow foreign keys on partitioned tables (users are only soft-deleted)
     @ManyToOne
-    @JoinColumn(name = "user_id", nullable = false)
+    @JoinColumn(name = "user_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private User user;
 
     @Column(name = "ip_address", length = 45)
     private String ipAddress;
 
-    @Column(name = "user_agent", length = 255)
-    private String userAgent;
+    // Browser/OS/device class are parsed once per distinct User-Agent in the user_agents dictionary
+    @ManyToOne
+    @JoinColumn(name = "user_agent_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private UserAgentEntry userAgent;
+
+    // Columns of rows written before the dictionary; read-only until a migration drops them
+    @Column(name = "user_agent", length = 255, insertable = false, updatable = false)
+    private String legacyUserAgent;
 
-    @Column(name = "device_info", length = 100)
-    private String deviceInfo;
+    @Column(name = "device_info", length = 100, insertable = false, updatable = false)
+    private String legacyDeviceInfo;
 
     @Column(name = "login_status")
     private boolean loginStatus;
@@ -38,7 +48,7 @@ public class LoginHistory {
     private String loginMethod; // PASSWORD, OAUTH2, 2FA
 
     @CreationTimestamp
-    @Column(name = "login_time", updatable = false)
+    @Column(name = "login_time", nullable = false, updatable = false)
     private LocalDateTime loginTime;
     
     @Column(name = "logout_time")
@@ -49,4 +59,8 @@ public class LoginHistory {
     
     @Column(name = "failure_reason", length = 100)
     private String failureReason;
+    
+    // Refresh token family of the login; also the sid claim of its access tokens
+    @Column(name = "session_id", length = 36)
+    private String sessionId;
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.app.userservice.entity.user;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Bảng dùng chung giữa các instance cho JdbcPendingTwoFactorStore
+@Entity
+@Table(name = "pending_two_factor_tokens", indexes = {
+    @Index(name = "idx_pending_two_factor_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingTwoFactorToken {
+    @Id
+    @Column(length = 36)
+    private String token;
+    
+    @Column(nullable = false, length = 50)
+    private String username;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    @Column(name = "failed_attempts", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int failedAttempts;
+}
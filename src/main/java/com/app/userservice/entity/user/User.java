@@ -93,6 +93,10 @@ public class User {
     @Column(name = "lock_time")
     private LocalDateTime lockTime;
     
+    // Bumped whenever roles, status, lock state or password change so issued tokens can be invalidated
+    @Column(name = "security_stamp")
+    private int securityStamp = 0;
+    
     public boolean getIsSystem() {
         return isSystem;
     }
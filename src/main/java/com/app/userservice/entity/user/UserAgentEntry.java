@@ -0,0 +1,43 @@
+package com.app.userservice.entity.user;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One distinct User-Agent string, parsed once; login_history rows reference it by id.
+ */
+@Entity
+@Table(name = "user_agents", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_user_agents_hash", columnNames = "ua_hash")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserAgentEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // SHA-256 (hex) của chuỗi User-Agent, dùng để tra cứu thay cho cột dài
+    @Column(name = "ua_hash", length = 64, nullable = false)
+    private String uaHash;
+    
+    @Column(name = "user_agent", length = 512, nullable = false)
+    private String userAgent;
+    
+    @Column(name = "browser", length = 50)
+    private String browser;
+    
+    @Column(name = "os", length = 50)
+    private String os;
+    
+    @Column(name = "device_class", length = 20)
+    private String deviceClass;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
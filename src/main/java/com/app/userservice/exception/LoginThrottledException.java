@@ -0,0 +1,10 @@
+package com.app.userservice.exception;
+
+public class LoginThrottledException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.app.userservice.exception;
+
+public class ServiceOverloadedException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public ServiceOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.app.userservice.exception;
+
+public class TokenRefreshException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public TokenRefreshException(String message) {
+        super(message);
+    }
+}
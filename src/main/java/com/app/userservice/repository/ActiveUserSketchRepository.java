@@ -0,0 +1,26 @@
+package com.app.userservice.repository;
+
+import com.app.userservice.entity.user.ActiveUserSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ActiveUserSketchRepository extends JpaRepository<ActiveUserSketch, Long> {
+    List<ActiveUserSketch> findBySketchDateBetween(LocalDate from, LocalDate to);
+    List<ActiveUserSketch> findByScopeAndSketchDateBetween(String scope, LocalDate from, LocalDate to);
+    Optional<ActiveUserSketch> findBySketchDateAndScopeAndInstanceId(LocalDate sketchDate, String scope, String instanceId);
+
+    // sketch_date leads the unique key, so this is an index range delete
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ActiveUserSketch s WHERE s.sketchDate < :before")
+    int deleteBySketchDateBefore(@Param("before") LocalDate before);
+}
@@ -0,0 +1,21 @@
+package com.app.userservice.repository;
+
+import com.app.userservice.entity.user.ConsumedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ConsumedTokenRepository extends JpaRepository<ConsumedToken, String> {
+    // Returns 0 when the token was already consumed; the primary key makes this atomic across instances
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO consumed_tokens (token_hash, token_type, user_id, consumed_at, expires_at) " +
+                   "VALUES (:tokenHash, :tokenType, :userId, :consumedAt, :expiresAt)", nativeQuery = true)
+    int insertIfAbsent(@Param("tokenHash") String tokenHash, @Param("tokenType") String tokenType,
+            @Param("userId") Long userId, @Param("consumedAt") LocalDateTime consumedAt,
+            @Param("expiresAt") LocalDateTime expiresAt);
+}
@@ -0,0 +1,43 @@
+package com.app.userservice.repository;
+
+import com.app.userservice.entity.user.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    
+    @Query("SELECT e.id FROM EmailOutbox e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    // Rows taken by another dispatcher in the meantime are no longer PENDING and are skipped
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENDING', e.claimToken = :claimToken, e.claimedAt = :now " +
+           "WHERE e.id IN :ids AND e.status = 'PENDING'")
+    int claim(@Param("ids") List<Long> ids, @Param("claimToken") String claimToken, @Param("now") LocalDateTime now);
+    
+    List<EmailOutbox> findByClaimTokenOrderByIdAsc(String claimToken);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENT', e.sentAt = :now, e.claimToken = NULL WHERE e.id IN :ids")
+    int markSent(@Param("ids") List<Long> ids, @Param("now") LocalDateTime now);
+    
+    // Releases rows of a dispatcher that died while sending
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'PENDING', e.claimToken = NULL " +
+           "WHERE e.status = 'SENDING' AND e.claimedAt < :before")
+    int releaseStale(@Param("before") LocalDateTime before);
+    
+    long countByStatus(String status);
+}
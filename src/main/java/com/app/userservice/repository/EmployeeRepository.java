@@ -15,6 +15,9 @@ import java.util.Optional;
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     Optional<Employee> findByUser(User user);
     Optional<Employee> findByUserId(Long userId);
+    
+    @Query("SELECT e.company.id FROM Employee e WHERE e.user.id = :userId")
+    Optional<Long> findCompanyIdByUserId(@Param("userId") Long userId);
     Optional<Employee> findByEmployeeId(String employeeId);
     List<Employee> findByCompany(Company company);
     List<Employee> findByCompanyId(Long companyId);
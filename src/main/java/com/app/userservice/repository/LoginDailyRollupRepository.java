@@ -0,0 +1,14 @@
+package com.app.userservice.repository;
+
+import com.app.userservice.entity.user.LoginDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface LoginDailyRollupRepository extends JpaRepository<LoginDailyRollup, Long> {
+    List<LoginDailyRollup> findByRollupDateBetweenOrderByRollupDateAsc(LocalDate from, LocalDate to);
+    List<LoginDailyRollup> findByUserIdAndRollupDateBetweenOrderByRollupDateAsc(Long userId, LocalDate from, LocalDate to);
+}
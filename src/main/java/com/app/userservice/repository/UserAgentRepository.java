@@ -0,0 +1,12 @@
+package com.app.userservice.repository;
+
+import com.app.userservice.entity.user.UserAgentEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UserAgentRepository extends JpaRepository<UserAgentEntry, Long> {
+    Optional<UserAgentEntry> findByUaHash(String uaHash);
+}
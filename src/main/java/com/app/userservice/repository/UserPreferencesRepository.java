@@ -0,0 +1,20 @@
+package com.app.userservice.repository;
+
+import com.app.userservice.entity.user.UserPreferences;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserPreferencesRepository extends JpaRepository<UserPreferences, Long> {
+    Optional<UserPreferences> findByUserId(Long userId);
+    
+    // Users without a preferences row keep the defaults, which have email notifications on
+    @Query("SELECT p.user.id FROM UserPreferences p WHERE p.user.id IN :userIds AND p.notificationEmail = false")
+    List<Long> findEmailOptedOutUserIds(@Param("userIds") Collection<Long> userIds);
+}
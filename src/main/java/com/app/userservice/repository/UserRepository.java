@@ -1,5 +1,6 @@
 package com.app.userservice.repository;
 
+import com.app.userservice.dto.FailedAttemptResult;
 import com.app.userservice.entity.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -8,6 +9,9 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,11 +21,61 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByUsername(String username);
     Boolean existsByEmail(String email);
     
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+    
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+    
     @Transactional
     @Modifying
     @Query("UPDATE User u SET u.failedAttempt = :failedAttempt WHERE u.username = :username")
     void updateFailedAttempts(@Param("failedAttempt") int failedAttempt, @Param("username") String username);
     
+    // Lock columns are assigned before failedAttempt: MySQL evaluates SET left to right with updated values
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET " +
+           "u.lockTime = CASE WHEN u.accountNonLocked = true AND u.failedAttempt + 1 >= :maxFailedAttempts THEN :now ELSE u.lockTime END, " +
+           "u.securityStamp = CASE WHEN u.accountNonLocked = true AND u.failedAttempt + 1 >= :maxFailedAttempts THEN u.securityStamp + 1 ELSE u.securityStamp END, " +
+           "u.accountNonLocked = CASE WHEN u.failedAttempt + 1 >= :maxFailedAttempts THEN false ELSE u.accountNonLocked END, " +
+           "u.failedAttempt = u.failedAttempt + 1 " +
+           "WHERE u.username = :username")
+    int incrementFailedAttempts(@Param("username") String username, @Param("maxFailedAttempts") int maxFailedAttempts,
+            @Param("now") LocalDateTime now);
+    
+    @Query("SELECT new com.app.userservice.dto.FailedAttemptResult(u.failedAttempt, u.accountNonLocked) " +
+           "FROM User u WHERE u.username = :username")
+    Optional<FailedAttemptResult> findFailedAttemptResult(@Param("username") String username);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.accountNonLocked = false, u.lockTime = :lockTime, u.securityStamp = u.securityStamp + 1 " +
+           "WHERE u.username = :username AND u.accountNonLocked = true")
+    int lockByUsername(@Param("username") String username, @Param("lockTime") LocalDateTime lockTime);
+    
+    // Only automatic locks expire: admin locks are stored without a lockTime
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.accountNonLocked = true, u.lockTime = null, u.failedAttempt = 0 " +
+           "WHERE u.username = :username AND u.accountNonLocked = false AND u.lockTime IS NOT NULL " +
+           "AND u.lockTime <= :lockedBefore")
+    int unlockIfExpired(@Param("username") String username, @Param("lockedBefore") LocalDateTime lockedBefore);
+    
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.lastLoginAt = :now, u.lastActiveAt = :now WHERE u.id = :id")
+    int updateLoginTimestamps(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    // Only replaces the hash it was computed from, so a concurrent password change is never overwritten
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.username = :username AND u.password = :oldHash")
+    int upgradePasswordHash(@Param("username") String username, @Param("oldHash") String oldHash,
+            @Param("newHash") String newHash);
+    
+    @Query("SELECT u.securityStamp FROM User u WHERE u.id = :id")
+    Optional<Integer> findSecurityStampById(@Param("id") Long id);
+    
     @Query("SELECT u FROM User u WHERE u.passwordResetToken = :token")
     Optional<User> findByPasswordResetToken(@Param("token") String token);
     
@@ -0,0 +1,57 @@
+package com.app.userservice.security.crypto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Picks the BCrypt cost for this machine at startup.
+ *
+ * Each cost step doubles the work, so the highest cost whose measured verify time stays within the
+ * target is used. The result never drops below the BCrypt default of 10, so a slow host cannot
+ * weaken new hashes.
+ */
+public final class BcryptCostCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BcryptCostCalibrator.class);
+
+    static final int MIN_STRENGTH = 10;
+    static final int MAX_STRENGTH = 16;
+
+    private static final String SAMPLE_PASSWORD = "calibration-Password-1";
+
+    private BcryptCostCalibrator() {
+    }
+
+    public static int calibrate(long targetMs) {
+        int chosen = MIN_STRENGTH;
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            long elapsedMs = measure(strength);
+            if (elapsedMs > targetMs) {
+                break;
+            }
+            chosen = strength;
+            // The next step costs about twice as much; stop early instead of paying for it
+            if (elapsedMs * 2 > targetMs) {
+                break;
+            }
+        }
+
+        logger.info("BCrypt cost calibrated to {} for a target of {} ms", chosen, targetMs);
+        return chosen;
+    }
+
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String hash = encoder.encode(SAMPLE_PASSWORD);
+
+        // Best of two, so JIT warm-up or a GC pause does not skew the result
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            encoder.matches(SAMPLE_PASSWORD, hash);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+        }
+        return best;
+    }
+}
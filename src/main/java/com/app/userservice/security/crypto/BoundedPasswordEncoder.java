@@ -0,0 +1,51 @@
+package com.app.userservice.security.crypto;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * PasswordEncoder that runs the delegate's encode/matches on the PasswordHashingExecutor instead of
+ * the calling request thread.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordEncoder delegate;
+
+    private final PasswordHashingExecutor executor;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, PasswordHashingExecutor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return executor.execute("encode", () -> delegate.encode(rawPassword));
+    }
+
+    /**
+     * Queue an encode without waiting, for callers that hash many passwords at once (bulk import).
+     * Rejected with ServiceOverloadedException when the queue is full.
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        return executor.submit("encode", () -> delegate.encode(rawPassword));
+    }
+
+    /**
+     * Threads hashing concurrently at most; bulk callers keep their own concurrency below this.
+     */
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return executor.execute("matches", () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,152 @@
+package com.app.userservice.security.crypto;
+
+import com.app.userservice.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated, bounded pool for password hashing and verification.
+ *
+ * Hashing is CPU bound, so the pool is sized to the cores and keeps request threads free for
+ * cheap endpoints. When the queue is full, work is rejected immediately with a
+ * ServiceOverloadedException (503) instead of piling up. A caller that gives up waiting cancels
+ * its task, which is taken off the queue (or skipped if a worker already dequeued it), so hashes
+ * nobody waits for are not run. Time spent queued and time spent hashing are recorded separately
+ * as password.hash.queue.wait and password.hash.time.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    private final long maxWaitMs;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter rejected;
+
+    // operation -> {queue wait, hash time}, registered once rather than on every hash
+    private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+
+    public PasswordHashingExecutor(MeterRegistry meterRegistry,
+            @Value("${app.security.password-hash.threads:0}") int threads,
+            @Value("${app.security.password-hash.queue-capacity:64}") int queueCapacity,
+            @Value("${app.security.password-hash.max-wait:5000}") long maxWaitMs) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxWaitMs = maxWaitMs;
+        this.meterRegistry = meterRegistry;
+        this.rejected = Counter.builder("password.hash.rejected")
+                .description("Password hashing requests shed because the queue was full")
+                .register(meterRegistry);
+
+        Gauge.builder("password.hash.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        timers("encode");
+        timers("matches");
+    }
+
+    /**
+     * Run the task on the hashing pool and wait for its result.
+     */
+    public <T> T execute(String operation, Supplier<T> task) {
+        Future<T> future = submit(operation, task);
+        try {
+            return future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new ServiceOverloadedException("Hệ thống đang quá tải, vui lòng thử lại sau");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Queue the task without waiting; rejected immediately when the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(String operation, Supplier<T> task) {
+        Timer[] operationTimers = timers(operation);
+        long queuedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        Runnable work = () -> {
+            // Cancelled (the caller timed out) after a worker had already taken it off the queue
+            if (result.isDone()) {
+                return;
+            }
+            long startedAt = System.nanoTime();
+            operationTimers[0].record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                operationTimers[1].record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        };
+
+        try {
+            executor.execute(work);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceOverloadedException("Hệ thống đang quá tải, vui lòng thử lại sau");
+        }
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                executor.remove(work);
+            }
+        });
+        return result;
+    }
+
+    private Timer[] timers(String operation) {
+        return timers.computeIfAbsent(operation, op -> new Timer[] {
+                Timer.builder("password.hash.queue.wait").tag("operation", op).register(meterRegistry),
+                Timer.builder("password.hash.time").tag("operation", op).register(meterRegistry)
+        });
+    }
+
+    public int getPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
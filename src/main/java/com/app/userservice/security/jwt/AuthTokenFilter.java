@@ -1,6 +1,11 @@
 package com.app.userservice.security.jwt;
 
+import com.app.userservice.security.service.SecurityStampService;
+import com.app.userservice.security.service.TokenRevocationService;
+import com.app.userservice.security.service.UserDetailsImpl;
 import com.app.userservice.security.service.UserDetailsServiceImpl;
+import com.app.userservice.service.ActiveUserTracker;
+import com.app.userservice.service.PresenceTracker;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,6 +13,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,11 +24,30 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
+    // Request attribute holding the verified JwtClaims of the current request
+    public static final String TOKEN_CLAIMS_ATTRIBUTE = AuthTokenFilter.class.getName() + ".claims";
+    
     @Autowired
     private JwtUtils jwtUtils;
 
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
+    
+    @Autowired
+    private SecurityStampService securityStampService;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    @Autowired
+    private ActiveUserTracker activeUserTracker;
+    
+    @Autowired
+    private PresenceTracker presenceTracker;
+    
+    // When enabled the principal is built from the signed claims instead of loading the user row
+    @Value("${app.jwt.stateless-auth:false}")
+    private boolean statelessAuth;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
@@ -31,18 +56,28 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            JwtClaims claims = jwt != null ? jwtUtils.parseJwtToken(jwt) : null;
+            if (claims != null && tokenRevocationService.isRevoked(claims.getTokenId())) {
+                logger.warn("JWT token has been revoked: {}", claims.getTokenId());
+                claims = null;
+            }
+            if (claims != null) {
+                UserDetails userDetails = statelessAuth
+                        ? loadUserFromClaims(claims)
+                        : userDetailsService.loadUserByUsername(claims.getUsername());
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails,
+                                    null,
+                                    userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    request.setAttribute(TOKEN_CLAIMS_ATTRIBUTE, claims);
+                    activeUserTracker.record(claims.getUserId());
+                    presenceTracker.touch(claims.getUserId());
+                }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e);
@@ -51,6 +86,30 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Build the principal from the token claims, falling back to a database load for tokens
+     * issued before claims-only mode existed. Returns null when the token's security stamp is stale.
+     */
+    private UserDetails loadUserFromClaims(JwtClaims claims) {
+        Long userId = claims.getUserId();
+        Integer stamp = claims.getSecurityStamp();
+        if (userId == null || stamp == null) {
+            return userDetailsService.loadUserByUsername(claims.getUsername());
+        }
+
+        if (!securityStampService.isCurrent(userId, stamp)) {
+            logger.warn("JWT security stamp is stale for user: {}", claims.getUsername());
+            return null;
+        }
+
+        return UserDetailsImpl.fromClaims(
+                userId,
+                claims.getUsername(),
+                claims.getEmail(),
+                claims.getRoles(),
+                stamp);
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
@@ -60,4 +119,4 @@ public class AuthTokenFilter extends OncePerRequestFilter {
 
         return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package com.app.userservice.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Typed view of the claims of a token that has already been parsed and verified by JwtUtils.
+ */
+public final class JwtClaims {
+    private final String tokenId;
+    private final String username;
+    private final Long userId;
+    private final String email;
+    private final String roles;
+    private final Integer securityStamp;
+    private final String sessionId;
+    private final Date expiration;
+
+    private JwtClaims(String tokenId, String username, Long userId, String email, String roles, Integer securityStamp,
+            String sessionId, Date expiration) {
+        this.tokenId = tokenId;
+        this.username = username;
+        this.userId = userId;
+        this.email = email;
+        this.roles = roles;
+        this.securityStamp = securityStamp;
+        this.sessionId = sessionId;
+        this.expiration = expiration;
+    }
+
+    static JwtClaims from(Claims claims) {
+        return new JwtClaims(
+                claims.getId(),
+                claims.getSubject(),
+                claims.get("userId", Long.class),
+                claims.get("email", String.class),
+                claims.get("roles", String.class),
+                claims.get("stamp", Integer.class),
+                claims.get("sid", String.class),
+                claims.getExpiration());
+    }
+
+    /**
+     * The jti claim; null for tokens issued before token ids were added.
+     */
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getRoles() {
+        return roles;
+    }
+
+    /**
+     * Null for tokens issued before security stamps were embedded.
+     */
+    public Integer getSecurityStamp() {
+        return securityStamp;
+    }
+
+    /**
+     * The sid claim; null for tokens issued before session ids were added.
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public Date getExpiration() {
+        return expiration;
+    }
+}
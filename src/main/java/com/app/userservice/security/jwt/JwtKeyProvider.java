@@ -0,0 +1,239 @@
+package com.app.userservice.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Holds the keys used to sign and verify JWTs.
+ *
+ * With app.jwt.algorithm=HS256 tokens are signed with the shared app.jwt.secret.
+ * With RS256 every "kid.pem" (PKCS#8) file in app.jwt.keys.location is loaded; the key named by
+ * app.jwt.keys.active-kid signs new tokens and the others stay available for verification, which
+ * is how keys are rotated. Public keys are published through the JWKS endpoint so other services
+ * can verify tokens locally. After switching to RS256, HS256 tokens are accepted only until
+ * app.jwt.legacy-hs256.accept-until (an ISO-8601 instant, normally the switch time plus
+ * app.jwt.expiration) so tokens issued before the switch keep working until they expire; with the
+ * property empty they are rejected straight away, since anyone holding the shared secret could
+ * otherwise mint tokens forever.
+ */
+@Component
+public class JwtKeyProvider extends SigningKeyResolverAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyProvider.class);
+
+    @Value("${app.jwt.secret}")
+    private String jwtSecret;
+
+    @Value("${app.jwt.algorithm:HS256}")
+    private String algorithm;
+
+    @Value("${app.jwt.keys.location:}")
+    private String keysLocation;
+
+    @Value("${app.jwt.keys.active-kid:}")
+    private String activeKid;
+
+    @Value("${app.jwt.legacy-hs256.accept-until:}")
+    private String legacyHs256AcceptUntil;
+
+    // Null when legacy HS256 tokens are not accepted in RS256 mode
+    private Instant legacyHs256Cutoff;
+
+    private Key hmacKey;
+
+    private SignatureAlgorithm signatureAlgorithm;
+
+    private PrivateKey signingKey;
+
+    private final Map<String, RSAPublicKey> publicKeys = new LinkedHashMap<>();
+
+    @PostConstruct
+    void init() {
+        hmacKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        signatureAlgorithm = SignatureAlgorithm.forName(algorithm);
+
+        if (signatureAlgorithm == SignatureAlgorithm.HS256) {
+            return;
+        }
+        if (signatureAlgorithm != SignatureAlgorithm.RS256) {
+            throw new IllegalStateException("Unsupported app.jwt.algorithm: " + algorithm);
+        }
+
+        Map<String, PrivateKey> privateKeys = StringUtils.hasText(keysLocation)
+                ? loadPrivateKeys(Paths.get(keysLocation))
+                : generateEphemeralKey();
+
+        if (!StringUtils.hasText(activeKid)) {
+            activeKid = privateKeys.keySet().iterator().next();
+        }
+        signingKey = privateKeys.get(activeKid);
+        if (signingKey == null) {
+            throw new IllegalStateException("No key found for app.jwt.keys.active-kid: " + activeKid);
+        }
+        if (StringUtils.hasText(legacyHs256AcceptUntil)) {
+            legacyHs256Cutoff = Instant.parse(legacyHs256AcceptUntil.trim());
+            logger.info("Legacy HS256 tokens accepted until {}", legacyHs256Cutoff);
+        }
+        logger.info("JWT signing with RS256, active kid {}, {} verification key(s)", activeKid, publicKeys.size());
+    }
+
+    public SignatureAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public Key getSigningKey() {
+        return signatureAlgorithm == SignatureAlgorithm.HS256 ? hmacKey : signingKey;
+    }
+
+    /**
+     * Key id written to the JWS header, or null for HS256.
+     */
+    public String getActiveKid() {
+        return signatureAlgorithm == SignatureAlgorithm.HS256 ? null : activeKid;
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        if (SignatureAlgorithm.HS256.getValue().equals(header.getAlgorithm())) {
+            if (signatureAlgorithm == SignatureAlgorithm.HS256 || acceptsLegacyHs256(claims)) {
+                return hmacKey;
+            }
+            throw new SignatureException("HS256 tokens are no longer accepted");
+        }
+
+        Key key = header.getKeyId() != null ? publicKeys.get(header.getKeyId()) : null;
+        if (key == null) {
+            throw new SignatureException("Unknown JWT key id: " + header.getKeyId());
+        }
+        return key;
+    }
+
+    /**
+     * Legacy tokens are honoured only before the cutoff, and only when issued before it.
+     */
+    private boolean acceptsLegacyHs256(Claims claims) {
+        if (legacyHs256Cutoff == null || !Instant.now().isBefore(legacyHs256Cutoff)) {
+            return false;
+        }
+        return claims.getIssuedAt() != null && claims.getIssuedAt().toInstant().isBefore(legacyHs256Cutoff);
+    }
+
+    /**
+     * Public keys as a JWK set (RFC 7517). Empty in HS256 mode since the secret must never be published.
+     */
+    public Map<String, Object> getJwkSet() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (Map.Entry<String, RSAPublicKey> entry : publicKeys.entrySet()) {
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "RSA");
+            jwk.put("use", "sig");
+            jwk.put("alg", SignatureAlgorithm.RS256.getValue());
+            jwk.put("kid", entry.getKey());
+            jwk.put("n", base64Url(entry.getValue().getModulus()));
+            jwk.put("e", base64Url(entry.getValue().getPublicExponent()));
+            keys.add(jwk);
+        }
+        return Collections.singletonMap("keys", keys);
+    }
+
+    private Map<String, PrivateKey> loadPrivateKeys(Path directory) {
+        Map<String, PrivateKey> privateKeys = new LinkedHashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.pem")) {
+            for (Path file : files) {
+                String kid = file.getFileName().toString().replaceFirst("\\.pem$", "");
+                PrivateKey privateKey = readPrivateKey(Files.readString(file));
+                privateKeys.put(kid, privateKey);
+                publicKeys.put(kid, toPublicKey(privateKey));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read JWT keys from " + directory, e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid JWT key in " + directory, e);
+        }
+
+        if (privateKeys.isEmpty()) {
+            throw new IllegalStateException("No *.pem keys found in " + directory);
+        }
+        return privateKeys;
+    }
+
+    private Map<String, PrivateKey> generateEphemeralKey() {
+        logger.warn("app.jwt.keys.location is not set, generating an ephemeral RS256 key; "
+                + "tokens will not survive a restart and will not verify on other instances");
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            KeyPair keyPair = generator.generateKeyPair();
+            String kid = UUID.randomUUID().toString();
+            publicKeys.put(kid, (RSAPublicKey) keyPair.getPublic());
+            return Collections.singletonMap(kid, keyPair.getPrivate());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot generate RSA key", e);
+        }
+    }
+
+    private PrivateKey readPrivateKey(String pem) throws GeneralSecurityException {
+        String base64 = pem
+                .replaceAll("-----(BEGIN|END) PRIVATE KEY-----", "")
+                .replaceAll("\\s", "");
+        return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64)));
+    }
+
+    private RSAPublicKey toPublicKey(PrivateKey privateKey) throws GeneralSecurityException {
+        if (!(privateKey instanceof RSAPrivateCrtKey crtKey)) {
+            throw new GeneralSecurityException("RSA private key must include CRT parameters");
+        }
+        PublicKey publicKey = KeyFactory.getInstance("RSA")
+                .generatePublic(new RSAPublicKeySpec(crtKey.getModulus(), crtKey.getPublicExponent()));
+        return (RSAPublicKey) publicKey;
+    }
+
+    private String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // Drop the sign byte BigInteger adds when the high bit is set
+        if (bytes.length > 1 && bytes[0] == 0) {
+            byte[] unsigned = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, unsigned, 0, unsigned.length);
+            bytes = unsigned;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,79 @@
+package com.app.userservice.security.service;
+
+import com.app.userservice.entity.user.User;
+import com.app.userservice.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the per-user security stamp that is embedded in issued JWTs.
+ * Stateless authentication compares the token stamp against this value, which is re-read from
+ * the database at most once per check interval, so locks and role changes take effect within
+ * that window even on other instances.
+ */
+@Service
+public class SecurityStampService {
+
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.jwt.stamp-check-interval:60000}")
+    private long stampCheckIntervalMs;
+
+    private final Map<Long, CachedStamp> stamps = new ConcurrentHashMap<>();
+
+    /**
+     * Check that the stamp carried by a token still matches the user's current stamp
+     */
+    public boolean isCurrent(Long userId, int tokenStamp) {
+        long now = System.currentTimeMillis();
+        CachedStamp cached = stamps.get(userId);
+
+        if (cached == null || now - cached.loadedAt > stampCheckIntervalMs) {
+            Integer stamp = userRepository.findSecurityStampById(userId).orElse(null);
+            if (stamp == null) {
+                stamps.remove(userId);
+                return false;
+            }
+            cached = new CachedStamp(stamp, now);
+            stamps.put(userId, cached);
+        }
+
+        return cached.stamp == tokenStamp;
+    }
+
+    /**
+     * Bump the user's stamp and announce the change; the caller is responsible for saving the entity.
+     * Cached stamps and user details are dropped once the surrounding transaction commits.
+     */
+    public void rotate(User user) {
+        user.setSecurityStamp(user.getSecurityStamp() + 1);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), user.getUsername()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        if (event.getUserId() != null) {
+            stamps.remove(event.getUserId());
+        }
+    }
+
+    private static final class CachedStamp {
+        private final int stamp;
+        private final long loadedAt;
+
+        private CachedStamp(int stamp, long loadedAt) {
+            this.stamp = stamp;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.app.userservice.security.service;
+
+import com.app.userservice.entity.user.User;
+import com.app.userservice.repository.ConsumedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Issues and checks self-contained email verification and password reset tokens.
+ *
+ * A token is base64url(userId|type|expiry|stamp) + "." + base64url(HMAC-SHA256), so checking the
+ * signature, type and expiry needs no table read. The stamp is a short hash of what the token is
+ * about: the email address for verification, the password hash and security stamp for a reset,
+ * which makes a reset link dead as soon as the password changes. Single use is enforced by
+ * writing a consumed_tokens row only when a token is redeemed.
+ */
+@Service
+public class SignedTokenService {
+
+    private static final String VERSION = "1";
+    private static final char SEPARATOR = '|';
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Autowired
+    private ConsumedTokenRepository consumedTokenRepository;
+
+    @Value("${app.security.signed-token.secret:${app.jwt.secret}}")
+    private String secret;
+
+    private SecretKeySpec key;
+
+    // Mac instances are not thread-safe; one per thread avoids the provider lookup on every call
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    @PostConstruct
+    void init() {
+        key = new SecretKeySpec(("signed-token:" + secret).getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        newMac();
+    }
+
+    /**
+     * Legacy tokens are random UUIDs stored in user_verification_tokens.
+     */
+    public static boolean isSigned(String token) {
+        return token != null && token.indexOf('.') > 0;
+    }
+
+    public String issue(User user, String type, Duration ttl) {
+        long expiry = Instant.now().plus(ttl).getEpochSecond();
+        String payload = VERSION + SEPARATOR + user.getId() + SEPARATOR + type + SEPARATOR + expiry
+                + SEPARATOR + stamp(user, type);
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * Check signature and type. Returns null when the token is malformed, forged or of another type;
+     * expiry is left to the caller so it can tell an expired link apart from an invalid one.
+     */
+    public SignedToken verify(String token, String expectedType) {
+        if (!isSigned(token)) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            payloadBytes = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+            return null;
+        }
+
+        String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\\|", -1);
+        if (parts.length != 5 || !VERSION.equals(parts[0]) || !parts[2].equals(expectedType)) {
+            return null;
+        }
+        try {
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(parts[3]));
+            return new SignedToken(Long.parseLong(parts[1]), parts[2],
+                    LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()), parts[4], sha256Hex(token));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The token was issued for this user in its current state (same email, or same password).
+     */
+    public boolean matches(SignedToken token, User user) {
+        return user != null && user.getId().equals(token.getUserId())
+                && MessageDigest.isEqual(stamp(user, token.getType()).getBytes(StandardCharsets.UTF_8),
+                        token.getStamp().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Record the token as used. Returns false when it had already been consumed. Must run inside
+     * the transaction that applies the token's effect, so a failure rolls both back.
+     */
+    public boolean consume(SignedToken token) {
+        return consumedTokenRepository.insertIfAbsent(token.getTokenHash(), token.getType(), token.getUserId(),
+                LocalDateTime.now(), token.getExpiresAt()) > 0;
+    }
+
+    private String stamp(User user, String type) {
+        String source = "PASSWORD_RESET".equals(type)
+                ? user.getPassword() + SEPARATOR + user.getSecurityStamp()
+                : String.valueOf(user.getEmail()).toLowerCase();
+        byte[] digest = sha256(source);
+        return ENCODER.encodeToString(Arrays.copyOf(digest, 12));
+    }
+
+    private byte[] sign(byte[] payload) {
+        return macs.get().doFinal(payload);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static String sha256Hex(String value) {
+        return HexFormat.of().formatHex(sha256(value));
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Verified contents of a signed token.
+     */
+    public static final class SignedToken {
+        private final Long userId;
+        private final String type;
+        private final LocalDateTime expiresAt;
+        private final String stamp;
+        private final String tokenHash;
+
+        SignedToken(Long userId, String type, LocalDateTime expiresAt, String stamp, String tokenHash) {
+            this.userId = userId;
+            this.type = type;
+            this.expiresAt = expiresAt;
+            this.stamp = stamp;
+            this.tokenHash = tokenHash;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public LocalDateTime getExpiresAt() {
+            return expiresAt;
+        }
+
+        public String getStamp() {
+            return stamp;
+        }
+
+        public String getTokenHash() {
+            return tokenHash;
+        }
+
+        public boolean isExpired() {
+            return LocalDateTime.now().isAfter(expiresAt);
+        }
+    }
+}
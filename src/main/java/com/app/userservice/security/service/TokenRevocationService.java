@@ -0,0 +1,109 @@
+package com.app.userservice.security.service;
+
+import com.app.userservice.entity.user.RevokedToken;
+import com.app.userservice.repository.RevokedTokenRepository;
+import com.app.userservice.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Denylist of revoked access tokens, keyed by jti.
+ *
+ * Every revoked jti is kept in an in-memory Bloom filter, so the common "not revoked" answer needs
+ * no lookup at all; only filter hits are confirmed against revoked_tokens. Revocations made on
+ * other instances are picked up by a periodic sync, and expired entries are compacted away
+ * together with a rebuild of the filter.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${app.jwt.revocation.expected-entries:100000}")
+    private int expectedEntries;
+
+    @Value("${app.jwt.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+
+    private volatile LocalDateTime lastSync;
+
+    @PostConstruct
+    void init() {
+        rebuild();
+    }
+
+    /**
+     * Thu hồi access token cho đến khi nó hết hạn
+     */
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null) {
+            return;
+        }
+
+        RevokedToken revokedToken = new RevokedToken();
+        revokedToken.setJti(jti);
+        revokedToken.setExpiresAt(LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()));
+        revokedToken.setRevokedAt(LocalDateTime.now());
+        revokedTokenRepository.save(revokedToken);
+
+        filter.put(jti);
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        return revokedTokenRepository.existsById(jti);
+    }
+
+    /**
+     * Đồng bộ các token bị thu hồi trên instance khác vào Bloom filter
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.sync-interval:30000}")
+    public void syncRecentRevocations() {
+        LocalDateTime now = LocalDateTime.now();
+        // Overlap the window slightly so rows committed late by other instances are not missed
+        List<String> jtis = revokedTokenRepository.findJtisRevokedSince(lastSync.minusSeconds(5), now);
+        BloomFilter current = filter;
+        jtis.forEach(current::put);
+        lastSync = now;
+    }
+
+    /**
+     * Xóa các bản ghi đã hết hạn và dựng lại Bloom filter
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.compaction-interval:3600000}")
+    public void compact() {
+        int deleted = revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        rebuild();
+        if (deleted > 0) {
+            logger.info("Compacted {} expired revoked tokens", deleted);
+        }
+    }
+
+    private void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> jtis = revokedTokenRepository.findActiveJtis(now);
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, jtis.size() * 2), falsePositiveRate);
+        jtis.forEach(rebuilt::put);
+
+        filter = rebuilt;
+        lastSync = now;
+    }
+}
@@ -0,0 +1,58 @@
+package com.app.userservice.security.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Size and TTL bounded cache of UserDetailsImpl keyed by username.
+ * Entries are dropped explicitly on UserSecurityChangedEvent; the TTL bounds staleness for
+ * changes made on other instances. Hit/miss/eviction counts are published as "cache.*" metrics
+ * with cache=userDetails.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, UserDetailsImpl> cache;
+
+    private final Counter invalidations;
+
+    public UserDetailsCache(MeterRegistry meterRegistry,
+            @Value("${app.security.user-details-cache.max-size:10000}") long maxSize,
+            @Value("${app.security.user-details-cache.ttl:300000}") long ttlMs) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        this.invalidations = Counter.builder("user.details.cache.invalidations")
+                .description("Explicit invalidations caused by user security changes")
+                .register(meterRegistry);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+    }
+
+    public UserDetailsImpl get(String username, Function<String, UserDetailsImpl> loader) {
+        return cache.get(username, loader);
+    }
+
+    public void invalidate(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+            invalidations.increment();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        invalidate(event.getUsername());
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
@@ -23,15 +24,24 @@ public class UserDetailsImpl implements UserDetails {
     private String password;
     
     private Collection<? extends GrantedAuthority> authorities;
+    
+    @JsonIgnore
+    private int securityStamp;
 
     public UserDetailsImpl(Long id, String username, String email, String fullName, String password,
             Collection<? extends GrantedAuthority> authorities) {
+        this(id, username, email, fullName, password, authorities, 0);
+    }
+
+    public UserDetailsImpl(Long id, String username, String email, String fullName, String password,
+            Collection<? extends GrantedAuthority> authorities, int securityStamp) {
         this.id = id;
         this.username = username;
         this.email = email;
         this.fullName = fullName;
         this.password = password;
         this.authorities = authorities;
+        this.securityStamp = securityStamp;
     }
 
     public static UserDetailsImpl build(User user) {
@@ -45,7 +55,23 @@ public class UserDetailsImpl implements UserDetails {
             user.getEmail(),
             user.getFullName(),
             user.getPassword(),
-            authorities);
+            authorities,
+            user.getSecurityStamp());
+    }
+
+    /**
+     * Build a principal from already verified JWT claims, without touching the database.
+     * The comma separated roles string is the one written by JwtUtils.generateJwtToken.
+     */
+    public static UserDetailsImpl fromClaims(Long id, String username, String email, String roles, int securityStamp) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        if (roles != null && !roles.isEmpty()) {
+            for (String role : roles.split(",")) {
+                authorities.add(new SimpleGrantedAuthority(role.trim()));
+            }
+        }
+
+        return new UserDetailsImpl(id, username, email, null, null, authorities, securityStamp);
     }
 
     @Override
@@ -64,6 +90,10 @@ public class UserDetailsImpl implements UserDetails {
     public String getFullName() {
         return fullName;
     }
+    
+    public int getSecurityStamp() {
+        return securityStamp;
+    }
 
     @Override
     public String getPassword() {
@@ -0,0 +1,23 @@
+package com.app.userservice.security.service;
+
+/**
+ * Published when a change to a user affects authentication (roles, status, lock state, password).
+ * Listeners run after the surrounding transaction commits.
+ */
+public class UserSecurityChangedEvent {
+    private final Long userId;
+    private final String username;
+
+    public UserSecurityChangedEvent(Long userId, String username) {
+        this.userId = userId;
+        this.username = username;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+}
@@ -1,12 +1,17 @@
 package com.app.userservice.service;
 
+import com.app.userservice.dto.FailedAttemptResult;
 import com.app.userservice.entity.user.User;
 import com.app.userservice.repository.UserRepository;
+import com.app.userservice.security.service.SecurityStampService;
+import com.app.userservice.security.service.UserSecurityChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 @Service
@@ -15,6 +20,12 @@ public class AccountLockService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private SecurityStampService securityStampService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     @Value("${app.security.max-failed-attempts}")
     private int maxFailedAttempts;
     
@@ -22,16 +33,21 @@ public class AccountLockService {
     private long lockTimeDuration;
     
     /**
-     * Tăng số lần đăng nhập thất bại và khóa tài khoản nếu vượt quá giới hạn
+     * Tăng số lần đăng nhập thất bại và khóa tài khoản nếu vượt quá giới hạn.
+     * Tăng và khóa trong cùng một câu UPDATE nên không mất lượt khi có nhiều request song song;
+     * trạng thái trả về được đọc trong cùng giao dịch, khi dòng vẫn đang bị khóa ghi.
      */
     @Transactional
-    public void increaseFailedAttempts(User user) {
-        int newFailedAttempts = user.getFailedAttempt() + 1;
-        userRepository.updateFailedAttempts(newFailedAttempts, user.getUsername());
+    public FailedAttemptResult increaseFailedAttempts(String username) {
+        if (userRepository.incrementFailedAttempts(username, maxFailedAttempts, LocalDateTime.now()) == 0) {
+            return null;
+        }
         
-        if (newFailedAttempts >= maxFailedAttempts) {
-            lockUser(user);
+        FailedAttemptResult result = userRepository.findFailedAttemptResult(username).orElse(null);
+        if (result != null && !result.isAccountNonLocked()) {
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(null, username));
         }
+        return result;
     }
     
     /**
@@ -49,30 +65,34 @@ public class AccountLockService {
     public void lockUser(User user) {
         user.setAccountNonLocked(false);
         user.setLockTime(LocalDateTime.now());
+        securityStampService.rotate(user);
         
         userRepository.save(user);
     }
     
     /**
-     * Mở khóa tài khoản đã hết hạn khóa
+     * Khóa tài khoản theo username bằng một câu UPDATE, không cần tải entity
      */
     @Transactional
-    public boolean unlockWhenTimeExpired(User user) {
-        if (user.getLockTime() != null) {
-            LocalDateTime lockTimeInMs = user.getLockTime();
-            LocalDateTime unlockTimeInMs = lockTimeInMs.plusSeconds(lockTimeDuration / 1000);
-            
-            if (LocalDateTime.now().isAfter(unlockTimeInMs)) {
-                user.setAccountNonLocked(true);
-                user.setLockTime(null);
-                user.setFailedAttempt(0);
-                
-                userRepository.save(user);
-                
-                return true;
-            }
+    public boolean lockUser(String username) {
+        boolean locked = userRepository.lockByUsername(username, LocalDateTime.now()) > 0;
+        if (locked) {
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(null, username));
         }
-        
-        return false;
+        return locked;
+    }
+    
+    /**
+     * Mở khóa tài khoản nếu đã hết thời gian khóa (lock-time-duration), bằng một câu UPDATE có điều kiện
+     */
+    @Transactional
+    public boolean unlockIfExpired(String username) {
+        LocalDateTime lockedBefore = LocalDateTime.now().minus(Duration.ofMillis(lockTimeDuration));
+        boolean unlocked = userRepository.unlockIfExpired(username, lockedBefore) > 0;
+        if (unlocked) {
+            // Tokens stay invalid (the lock rotated the stamp); only cached user details need dropping
+            eventPublisher.publishEvent(new UserSecurityChangedEvent(null, username));
+        }
+        return unlocked;
     }
 }
\ No newline at end of file
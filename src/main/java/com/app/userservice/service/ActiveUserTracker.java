@@ -0,0 +1,243 @@
+package com.app.userservice.service;
+
+import com.app.userservice.entity.user.ActiveUserSketch;
+import com.app.userservice.repository.ActiveUserSketchRepository;
+import com.app.userservice.repository.EmployeeRepository;
+import com.app.userservice.util.HyperLogLog;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distinct active users per day, globally and per company, as HyperLogLog sketches.
+ *
+ * Every authenticated request and login adds the user id to today's sketches in memory. Sketches
+ * are flushed periodically to active_user_sketches, one row per day, scope and instance, so no
+ * instance ever overwrites another; DAU/WAU/MAU are unions of those rows plus the unflushed
+ * in-memory sketch, computed without touching login_history or users. Rows older than
+ * retention-days are deleted by the first flush of each day, so per-instance rows do not pile up.
+ */
+@Service
+public class ActiveUserTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveUserTracker.class);
+
+    public static final String GLOBAL_SCOPE = "GLOBAL";
+    private static final String COMPANY_SCOPE_PREFIX = "COMPANY:";
+    private static final long NO_COMPANY = 0L;
+
+    @Autowired
+    private ActiveUserSketchRepository activeUserSketchRepository;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Value("${app.analytics.active-users.precision:14}")
+    private int globalPrecision;
+
+    @Value("${app.analytics.active-users.company-precision:10}")
+    private int companyPrecision;
+
+    // Longest window read back: 30 days for MAU, up to 90 for the per-company endpoint
+    @Value("${app.analytics.active-users.retention-days:90}")
+    private int retentionDays;
+
+    // Rows written by this process; a restart starts new rows, which merge with the old ones
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Cache<Long, Long> companyByUser = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    private volatile DaySketches today;
+
+    private volatile DaySketches previous;
+
+    private volatile LocalDate purgedOn;
+
+    /**
+     * Ghi nhận người dùng hoạt động trong ngày
+     */
+    public void record(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        DaySketches sketches = current();
+        sketches.scope(GLOBAL_SCOPE, globalPrecision).add(userId);
+
+        long companyId = companyByUser.get(userId,
+                id -> employeeRepository.findCompanyIdByUserId(id).orElse(NO_COMPANY));
+        if (companyId != NO_COMPANY) {
+            sketches.scope(COMPANY_SCOPE_PREFIX + companyId, companyPrecision).add(userId);
+        }
+    }
+
+    /**
+     * Số người dùng hoạt động theo ngày / 7 ngày / 30 ngày
+     */
+    public Map<String, Long> getActiveUserCounts() {
+        LocalDate date = LocalDate.now();
+        HyperLogLog daily = new HyperLogLog(globalPrecision);
+        HyperLogLog weekly = new HyperLogLog(globalPrecision);
+        HyperLogLog monthly = new HyperLogLog(globalPrecision);
+
+        for (Map.Entry<LocalDate, HyperLogLog> entry : load(GLOBAL_SCOPE, date.minusDays(29), date).entrySet()) {
+            LocalDate day = entry.getKey();
+            HyperLogLog sketch = entry.getValue();
+            if (day.equals(date)) {
+                merge(daily, sketch);
+            }
+            if (!day.isBefore(date.minusDays(6))) {
+                merge(weekly, sketch);
+            }
+            merge(monthly, sketch);
+        }
+
+        Map<String, Long> counts = new HashMap<>();
+        counts.put("dailyActiveUsers", daily.estimate());
+        counts.put("weeklyActiveUsers", weekly.estimate());
+        counts.put("monthlyActiveUsers", monthly.estimate());
+        return counts;
+    }
+
+    /**
+     * Số người dùng hoạt động của từng công ty trong số ngày gần nhất
+     */
+    public Map<Long, Long> getCompanyActiveUsers(int days) {
+        LocalDate date = LocalDate.now();
+        Map<String, HyperLogLog> unions = new HashMap<>();
+        for (ActiveUserSketch row : activeUserSketchRepository.findBySketchDateBetween(date.minusDays(days - 1L), date)) {
+            if (row.getScope().startsWith(COMPANY_SCOPE_PREFIX)) {
+                merge(unions.computeIfAbsent(row.getScope(), scope -> new HyperLogLog(companyPrecision)),
+                        HyperLogLog.fromBytes(row.getRegisters()));
+            }
+        }
+        current().scopes.forEach((scope, sketch) -> {
+            if (scope.startsWith(COMPANY_SCOPE_PREFIX)) {
+                merge(unions.computeIfAbsent(scope, s -> new HyperLogLog(companyPrecision)), sketch);
+            }
+        });
+
+        Map<Long, Long> counts = new HashMap<>();
+        unions.forEach((scope, sketch) ->
+                counts.put(Long.valueOf(scope.substring(COMPANY_SCOPE_PREFIX.length())), sketch.estimate()));
+        return counts;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.active-users.flush-interval:300000}")
+    public void flush() {
+        DaySketches finished = previous;
+        if (finished != null) {
+            persist(finished);
+            previous = null;
+        }
+        persist(current());
+        purgeExpired();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.warn("Cannot flush active user sketches on shutdown: {}", e.getMessage());
+        }
+    }
+
+    // Once a day per instance; the DELETE is idempotent, so instances racing on it is harmless
+    private void purgeExpired() {
+        LocalDate date = LocalDate.now();
+        if (date.equals(purgedOn)) {
+            return;
+        }
+        int deleted = activeUserSketchRepository.deleteBySketchDateBefore(date.minusDays(retentionDays - 1L));
+        purgedOn = date;
+        if (deleted > 0) {
+            logger.info("Deleted {} active user sketch rows older than {} days", deleted, retentionDays);
+        }
+    }
+
+    private DaySketches current() {
+        LocalDate date = LocalDate.now();
+        DaySketches sketches = today;
+        if (sketches != null && sketches.date.equals(date)) {
+            return sketches;
+        }
+        synchronized (this) {
+            if (today == null || !today.date.equals(date)) {
+                // Keep yesterday until the next flush has written its final state
+                previous = today;
+                today = new DaySketches(date);
+            }
+            return today;
+        }
+    }
+
+    private Map<LocalDate, HyperLogLog> load(String scope, LocalDate from, LocalDate to) {
+        Map<LocalDate, HyperLogLog> sketches = new HashMap<>();
+        for (ActiveUserSketch row : activeUserSketchRepository.findByScopeAndSketchDateBetween(scope, from, to)) {
+            merge(sketches.computeIfAbsent(row.getSketchDate(), day -> new HyperLogLog(globalPrecision)),
+                    HyperLogLog.fromBytes(row.getRegisters()));
+        }
+        DaySketches sketchesToday = current();
+        HyperLogLog inMemory = sketchesToday.scopes.get(scope);
+        if (inMemory != null) {
+            merge(sketches.computeIfAbsent(sketchesToday.date, day -> new HyperLogLog(globalPrecision)), inMemory);
+        }
+        return sketches;
+    }
+
+    // Sketches written with a different precision (after a config change) are skipped
+    private void merge(HyperLogLog target, HyperLogLog source) {
+        if (target.getPrecision() == source.getPrecision()) {
+            target.merge(source);
+        }
+    }
+
+    private void persist(DaySketches sketches) {
+        LocalDateTime now = LocalDateTime.now();
+        sketches.scopes.forEach((scope, sketch) -> {
+            ActiveUserSketch row = activeUserSketchRepository
+                    .findBySketchDateAndScopeAndInstanceId(sketches.date, scope, instanceId)
+                    .orElseGet(() -> {
+                        ActiveUserSketch created = new ActiveUserSketch();
+                        created.setSketchDate(sketches.date);
+                        created.setScope(scope);
+                        created.setInstanceId(instanceId);
+                        return created;
+                    });
+            row.setRegisters(sketch.toBytes());
+            row.setUpdatedAt(now);
+            activeUserSketchRepository.save(row);
+        });
+    }
+
+    private static final class DaySketches {
+        private final LocalDate date;
+        private final Map<String, HyperLogLog> scopes = new ConcurrentHashMap<>();
+
+        DaySketches(LocalDate date) {
+            this.date = date;
+        }
+
+        HyperLogLog scope(String scope, int precision) {
+            return scopes.computeIfAbsent(scope, s -> new HyperLogLog(precision));
+        }
+    }
+}
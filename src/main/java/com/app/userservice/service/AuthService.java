@@ -3,38 +3,41 @@ package com.app.userservice.service;
 import com.app.userservice.dto.*;
 import com.app.userservice.entity.user.Role;
 import com.app.userservice.entity.user.User;
-import com.app.userservice.entity.user.UserVerificationToken;
-import com.app.userservice.repository.RoleRepository;
 import com.app.userservice.repository.UserRepository;
-import com.app.userservice.repository.UserVerificationTokenRepository;
+import com.app.userservice.security.jwt.JwtClaims;
 import com.app.userservice.security.jwt.JwtUtils;
+import com.app.userservice.security.service.SecurityStampService;
+import com.app.userservice.security.service.TokenRevocationService;
 import com.app.userservice.security.service.UserDetailsImpl;
+import com.app.userservice.security.service.UserDetailsCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 @Service
 public class AuthService {
 
-    @Autowired
-    private AuthenticationManager authenticationManager;
-
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
 
     @Autowired
     private PasswordEncoder encoder;
@@ -46,28 +49,116 @@ public class AuthService {
     private VerificationService verificationService;
     
     @Autowired
-    private UserVerificationTokenRepository tokenRepository;
+    private TwoFactorAuthService twoFactorAuthService;
+    
+    @Autowired
+    private SecurityStampService securityStampService;
     
     @Autowired
-    private TwoFactorAuthService twoFactorAuthService;
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    @Autowired
+    private LoginHistoryService loginHistoryService;
+    
+    @Autowired
+    private LoginThrottler loginThrottler;
+    
+    @Autowired
+    private AccountLockService accountLockService;
     
     // Temporary storage for 2FA authentication
-    private Map<String, String> twoFactorAuthenticationTokens = new HashMap<>();
-
-    public Map<String, Object> authenticateUser(LoginRequest loginRequest) {
-        // Authenticate with username and password
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
+    @Autowired
+    private PendingTwoFactorStore pendingTwoFactorStore;
+    
+    @Value("${app.security.two-factor.pending-ttl:300000}")
+    private long pendingTwoFactorTtlMs;
+    
+    @Value("${app.security.two-factor.max-otp-failures:5}")
+    private int maxOtpFailures;
+    
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private String dummyPasswordHash;
+    
+    // auth.login.stage timers, registered once rather than looked up on every login
+    private final Map<String, Timer> stageTimers = new HashMap<>();
+    
+    @PostConstruct
+    void init() {
+        dummyPasswordHash = encoder.encode(java.util.UUID.randomUUID().toString());
+        for (String stage : List.of("lookup", "verify", "sign", "persist")) {
+            stageTimers.put(stage, Timer.builder("auth.login.stage")
+                    .description("Time spent in each stage of a password login")
+                    .tag("stage", stage)
+                    .register(meterRegistry));
+        }
+    }
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+    public Map<String, Object> authenticateUser(LoginRequest loginRequest, HttpServletRequest request) {
+        String username = loginRequest.getUsername();
+        String clientIp = loginHistoryService.getClientIp(request);
+        
+        // Reject throttled username/IP before any password hashing or database work
+        loginThrottler.checkAllowed(username, clientIp);
+        
+        // The only user lookup of the login
+        User user = timed("lookup", () -> userRepository.findByUsername(username).orElse(null));
+        
+        // An automatic lock ends after lock-time-duration; lift it before judging this attempt
+        if (user != null && !user.isAccountNonLocked() && accountLockService.unlockIfExpired(user.getUsername())) {
+            user.setAccountNonLocked(true);
+            user.setLockTime(null);
+            user.setFailedAttempt(0);
+        }
+        
+        // Unknown users are checked against a dummy hash so the response time does not reveal them
+        boolean passwordMatches = timed("verify", () -> {
+            if (user == null) {
+                encoder.matches(loginRequest.getPassword(), dummyPasswordHash);
+                return false;
+            }
+            return encoder.matches(loginRequest.getPassword(), user.getPassword());
+        });
+        
+        String failureReason = null;
+        if (!passwordMatches) {
+            failureReason = "BAD_CREDENTIALS";
+        } else if (!user.isAccountNonLocked()) {
+            failureReason = "ACCOUNT_LOCKED";
+        } else if (user.getStatus() != 1) {
+            failureReason = "ACCOUNT_INACTIVE";
+        }
+        
+        if (failureReason != null) {
+            // The in-memory window rejects bursts before any hashing; the persistent counter decides the lock
+            loginThrottler.recordFailure(username, clientIp);
+            if (user != null && "BAD_CREDENTIALS".equals(failureReason)) {
+                // Increment and lock in one UPDATE, so parallel failures are neither lost nor double-locked
+                accountLockService.increaseFailedAttempts(user.getUsername());
+            }
+            loginHistoryService.recordFailedLogin(username, user, request, "PASSWORD", failureReason);
+            throw new BadCredentialsException("Bad credentials");
+        }
+        loginThrottler.recordSuccess(username);
+        if (user.getFailedAttempt() > 0) {
+            accountLockService.resetFailedAttempts(user.getUsername());
+        }
+        
+        UserDetailsImpl userDetails = UserDetailsImpl.build(user);
+        upgradePasswordHashIfNeeded(userDetails, loginRequest.getPassword());
         
         // Check if 2FA is enabled
-        User user = userRepository.findById(userDetails.getId()).orElse(null);
-        if (user != null && user.isTwoFactorEnabled()) {
+        if (user.isTwoFactorEnabled()) {
             // Generate temporary token for 2FA
             String tempToken = java.util.UUID.randomUUID().toString();
-            twoFactorAuthenticationTokens.put(tempToken, user.getUsername());
+            pendingTwoFactorStore.save(tempToken, user.getUsername(), Duration.ofMillis(pendingTwoFactorTtlMs));
             
             // Return temp token and indicate 2FA is required
             Map<String, Object> response = new HashMap<>();
@@ -77,54 +168,102 @@ public class AuthService {
         }
         
         // If 2FA is not enabled, proceed with normal authentication
-        String jwt = jwtUtils.generateJwtToken(authentication);
-        
-        // Update last login time
-        if (user != null) {
-            user.setLastLoginAt(LocalDateTime.now());
-            user.setLastActiveAt(LocalDateTime.now());
-            userRepository.save(user);
-        }
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("token", jwt);
-        response.put("user", userDetails);
+        Map<String, Object> response = completeLogin(user, userDetails, request, "PASSWORD");
         response.put("requires2FA", false);
         return response;
     }
     
-    public Map<String, Object> verifyOtp(String verificationCode) {
-        // Get current authentication
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (!(authentication.getPrincipal() instanceof UserDetailsImpl)) {
-            throw new RuntimeException("Không thể xác thực");
+    public Map<String, Object> verifyOtp(String tempToken, String verificationCode, HttpServletRequest request) {
+        // Resolve the pending login started by authenticateUser, possibly on another instance
+        if (tempToken == null || tempToken.isEmpty()) {
+            throw new RuntimeException("Phiên xác thực 2FA không hợp lệ hoặc đã hết hạn");
         }
+        String username = pendingTwoFactorStore.find(tempToken)
+                .orElseThrow(() -> new RuntimeException("Phiên xác thực 2FA không hợp lệ hoặc đã hết hạn"));
+        
+        // OTP guesses share the password login's per-IP and per-username windows
+        String clientIp = loginHistoryService.getClientIp(request);
+        loginThrottler.checkAllowed(username, clientIp);
         
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
-        User user = userRepository.findById(userDetails.getId())
+        User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("Người dùng không tồn tại"));
         
         // Verify OTP
         boolean isValid = twoFactorAuthService.validateOTP(user, verificationCode);
         
         if (!isValid) {
+            loginThrottler.recordFailure(username, clientIp);
+            // A six-digit code must not be brute-forced within one temp token's lifetime
+            if (pendingTwoFactorStore.recordFailure(tempToken) >= maxOtpFailures) {
+                pendingTwoFactorStore.remove(tempToken);
+                throw new RuntimeException("Nhập sai OTP quá nhiều lần, vui lòng đăng nhập lại");
+            }
             throw new RuntimeException("Mã OTP không hợp lệ");
         }
         
-        // Generate JWT token
-        String jwt = jwtUtils.generateJwtToken(authentication);
+        // A temp token completes exactly one login
+        if (!pendingTwoFactorStore.remove(tempToken)) {
+            throw new RuntimeException("Phiên xác thực 2FA không hợp lệ hoặc đã hết hạn");
+        }
         
-        // Update last login time
-        user.setLastLoginAt(LocalDateTime.now());
-        user.setLastActiveAt(LocalDateTime.now());
-        userRepository.save(user);
+        return completeLogin(user, UserDetailsImpl.build(user), request, "2FA");
+    }
+    
+    /**
+     * Ký token, cập nhật thời điểm đăng nhập và ghi lịch sử (bất đồng bộ)
+     */
+    private Map<String, Object> completeLogin(User user, UserDetailsImpl userDetails, HttpServletRequest request,
+            String loginMethod) {
+        // One id per login: refresh token family, sid claim and login_history.session_id
+        String sessionId = java.util.UUID.randomUUID().toString();
+        String jwt = timed("sign", () -> jwtUtils.generateJwtToken(userDetails, sessionId));
+        
+        String refreshToken = timed("persist", () -> {
+            userRepository.updateLoginTimestamps(user.getId(), LocalDateTime.now());
+            return refreshTokenService.issue(user, sessionId);
+        });
+        loginHistoryService.recordSuccessfulLogin(user, request, loginMethod, sessionId);
         
         Map<String, Object> response = new HashMap<>();
         response.put("token", jwt);
+        response.put("refreshToken", refreshToken);
         response.put("user", userDetails);
-        
         return response;
     }
+    
+    // Rehashing after login is not a password change: the security stamp and issued tokens are left alone
+    private void upgradePasswordHashIfNeeded(UserDetailsImpl userDetails, String rawPassword) {
+        if (encoder.upgradeEncoding(userDetails.getPassword())
+                && userRepository.upgradePasswordHash(userDetails.getUsername(), userDetails.getPassword(),
+                        encoder.encode(rawPassword)) > 0) {
+            userDetailsCache.invalidate(userDetails.getUsername());
+        }
+    }
+    
+    private <T> T timed(String stage, Supplier<T> step) {
+        return stageTimers.get(stage).record(step);
+    }
+    
+    public Map<String, Object> refreshToken(TokenRefreshRequest refreshRequest) {
+        return refreshTokenService.rotate(refreshRequest.getRefreshToken());
+    }
+    
+    @Transactional
+    public MessageResponse logout(JwtClaims claims, String refreshToken) {
+        // Access token bị từ chối ngay cả khi chưa hết hạn
+        tokenRevocationService.revoke(claims.getTokenId(), claims.getExpiration());
+        
+        if (refreshToken != null && !refreshToken.isEmpty()) {
+            refreshTokenService.revoke(refreshToken);
+        }
+        if (claims.getSessionId() != null) {
+            refreshTokenService.revokeSession(claims.getSessionId());
+        }
+        
+        loginHistoryService.recordLogout(claims.getSessionId());
+        
+        return new MessageResponse("Đăng xuất thành công", true);
+    }
 
     @Transactional
     public MessageResponse registerUser(SignupRequest signUpRequest) {
@@ -151,7 +290,7 @@ public class AuthService {
         
         // Assign USER role by default
         Set<Role> roles = new HashSet<>();
-        Role userRole = roleRepository.findByName("USER")
+        Role userRole = roleRegistry.findByName("USER")
                 .orElseThrow(() -> new RuntimeException("Error: Role USER is not found."));
         roles.add(userRole);
         
@@ -209,38 +348,24 @@ public class AuthService {
     
     @Transactional
     public MessageResponse resetPassword(ResetPasswordRequest resetRequest) {
-        // Kiểm tra token
-        UserVerificationToken resetToken = tokenRepository.findByTokenAndTokenType(resetRequest.getToken(), "PASSWORD_RESET")
-                .orElse(null);
-        
-        if (resetToken == null) {
-            return new MessageResponse("Token không hợp lệ", false);
-        }
-        
-        if (resetToken.isExpired()) {
-            return new MessageResponse("Token đã hết hạn", false);
-        }
-        
-        if (resetToken.isUsed()) {
-            return new MessageResponse("Token đã được sử dụng", false);
-        }
-        
-        // Kiểm tra mật khẩu xác nhận
+        // Kiểm tra mật khẩu xác nhận trước khi dùng token, để token không bị tiêu hao vô ích
         if (!resetRequest.getNewPassword().equals(resetRequest.getConfirmPassword())) {
             return new MessageResponse("Mật khẩu mới và xác nhận mật khẩu không khớp", false);
         }
         
+        // Kiểm tra token và đánh dấu đã sử dụng; được hoàn tác cùng giao dịch nếu có lỗi
+        VerificationService.TokenRedemption redemption = verificationService.redeem(resetRequest.getToken(), "PASSWORD_RESET");
+        if (redemption.getError() != null) {
+            return redemption.getError();
+        }
+        
         // Đặt lại mật khẩu
-        User user = resetToken.getUser();
+        User user = redemption.getUser();
         user.setPassword(encoder.encode(resetRequest.getNewPassword()));
         user.setPasswordChangedAt(LocalDateTime.now());
+        securityStampService.rotate(user);
         userRepository.save(user);
         
-        // Đánh dấu token đã sử dụng
-        resetToken.setUsed(true);
-        resetToken.setConfirmedAt(LocalDateTime.now());
-        tokenRepository.save(resetToken);
-        
         return new MessageResponse("Mật khẩu đã được đặt lại thành công", true);
     }
     
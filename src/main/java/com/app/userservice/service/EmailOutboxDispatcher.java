@@ -0,0 +1,202 @@
+package com.app.userservice.service;
+
+import com.app.userservice.entity.user.EmailOutbox;
+import com.app.userservice.repository.EmailOutboxRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Delivers the email outbox in the background.
+ *
+ * Each run claims a batch of due rows with a conditional UPDATE (rows claimed by another instance
+ * are skipped without locking), renders them with Thymeleaf and hands the whole batch to one
+ * JavaMailSender.send call, which delivers it over a single SMTP connection. Failed messages are
+ * retried with exponential backoff until max-attempts, and the batch size is derived from
+ * rate-per-second so the SMTP relay is never sent more than the configured rate.
+ */
+@Component
+public class EmailOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    private static final TypeReference<Map<String, Object>> VARIABLES_TYPE = new TypeReference<>() {
+    };
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private TemplateEngine templateEngine;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.mail.username}")
+    private String senderEmail;
+
+    @Value("${app.mail.outbox.poll-interval:5000}")
+    private long pollIntervalMs;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.rate-per-second:5}")
+    private double ratePerSecond;
+
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.backoff-base:30000}")
+    private long backoffBaseMs;
+
+    @Value("${app.mail.outbox.backoff-max:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${app.mail.outbox.stale-after:600000}")
+    private long staleAfterMs;
+
+    /**
+     * Gửi một lô email đến hạn; trả về số email đã gửi thành công
+     */
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval:5000}")
+    public int dispatch() {
+        LocalDateTime now = LocalDateTime.now();
+        emailOutboxRepository.releaseStale(now.minus(Duration.ofMillis(staleAfterMs)));
+
+        int limit = (int) Math.max(1, Math.min(batchSize, ratePerSecond * pollIntervalMs / 1000));
+        List<Long> dueIds = emailOutboxRepository.findDueIds(now, PageRequest.of(0, limit));
+        if (dueIds.isEmpty()) {
+            return 0;
+        }
+
+        String claimToken = UUID.randomUUID().toString();
+        if (emailOutboxRepository.claim(dueIds, claimToken, now) == 0) {
+            return 0;
+        }
+        List<EmailOutbox> claimed = emailOutboxRepository.findByClaimTokenOrderByIdAsc(claimToken);
+
+        Map<MimeMessage, EmailOutbox> messages = new LinkedHashMap<>();
+        List<EmailOutbox> failed = new ArrayList<>();
+        for (EmailOutbox email : claimed) {
+            try {
+                messages.put(render(email), email);
+            } catch (Exception e) {
+                recordFailure(email, e);
+                failed.add(email);
+            }
+        }
+
+        Map<Object, Exception> sendFailures = send(messages);
+
+        List<Long> sentIds = new ArrayList<>();
+        messages.forEach((message, email) -> {
+            Exception error = sendFailures.get(message);
+            if (error == null) {
+                sentIds.add(email.getId());
+            } else {
+                recordFailure(email, error);
+                failed.add(email);
+            }
+        });
+
+        if (!sentIds.isEmpty()) {
+            emailOutboxRepository.markSent(sentIds, LocalDateTime.now());
+        }
+        if (!failed.isEmpty()) {
+            emailOutboxRepository.saveAll(failed);
+        }
+
+        meterRegistry.counter("email.outbox.sent").increment(sentIds.size());
+        meterRegistry.counter("email.outbox.failed").increment(failed.size());
+        return sentIds.size();
+    }
+
+    private Map<Object, Exception> send(Map<MimeMessage, EmailOutbox> messages) {
+        if (messages.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+            return Collections.emptyMap();
+        } catch (MailSendException e) {
+            // Lists exactly the messages that were not delivered; a connection failure lists all of them
+            Map<Object, Exception> failures = e.getFailedMessages();
+            return failures.isEmpty() ? failAll(messages, e) : failures;
+        } catch (MailException e) {
+            return failAll(messages, e);
+        }
+    }
+
+    private Map<Object, Exception> failAll(Map<MimeMessage, EmailOutbox> messages, Exception e) {
+        Map<Object, Exception> failures = new LinkedHashMap<>();
+        messages.keySet().forEach(message -> failures.put(message, e));
+        return failures;
+    }
+
+    private MimeMessage render(EmailOutbox email) throws MessagingException, IOException {
+        Context context = new Context();
+        if (email.getVariables() != null) {
+            context.setVariables(objectMapper.readValue(email.getVariables(), VARIABLES_TYPE));
+        }
+        String htmlContent = templateEngine.process(email.getTemplate(), context);
+
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(senderEmail);
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(htmlContent, true);
+        return message;
+    }
+
+    private void recordFailure(EmailOutbox email, Exception e) {
+        int attempts = email.getAttempts() + 1;
+        String error = String.valueOf(e.getMessage());
+
+        email.setAttempts(attempts);
+        email.setClaimToken(null);
+        email.setLastError(error.length() > 500 ? error.substring(0, 500) : error);
+
+        if (attempts >= maxAttempts) {
+            email.setStatus(EmailOutbox.STATUS_FAILED);
+            logger.error("Giving up on email {} to {} after {} attempts: {}", email.getId(), email.getRecipient(), attempts, error);
+        } else {
+            long backoffMs = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempts - 1, 20));
+            email.setStatus(EmailOutbox.STATUS_PENDING);
+            email.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(backoffMs)));
+            logger.warn("Email {} failed (attempt {}), retrying in {} ms: {}", email.getId(), attempts, backoffMs, error);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.app.userservice.service;
+
+import com.app.userservice.entity.user.EmailOutbox;
+import com.app.userservice.repository.EmailOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Service
+public class EmailOutboxService {
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * Thêm email vào outbox trong giao dịch hiện tại; EmailOutboxDispatcher sẽ render và gửi sau
+     */
+    @Transactional
+    public EmailOutbox enqueue(String recipient, String subject, String template, Map<String, Object> variables) {
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(recipient);
+        email.setSubject(subject);
+        email.setTemplate(template);
+        try {
+            email.setVariables(objectMapper.writeValueAsString(variables));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Email variables are not serializable", e);
+        }
+        email.setStatus(EmailOutbox.STATUS_PENDING);
+        email.setNextAttemptAt(LocalDateTime.now());
+        email.setCreatedAt(LocalDateTime.now());
+        
+        return emailOutboxRepository.save(email);
+    }
+}
@@ -1,27 +1,20 @@
 package com.app.userservice.service;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the application's emails and puts them in the outbox; delivery happens in EmailOutboxDispatcher.
+ */
 @Service
 public class EmailService {
 
     @Autowired
-    private JavaMailSender emailSender;
-    
-    @Autowired
-    private TemplateEngine templateEngine;
-    
-    @Value("${spring.mail.username}")
-    private String senderEmail;
+    private EmailOutboxService emailOutboxService;
     
     @Value("${app.name}")
     private String appName;
@@ -29,41 +22,23 @@ public class EmailService {
     @Value("${app.base-url:http://localhost:8082}")
     private String baseUrl;
     
-    @Async
-    public void sendVerificationEmail(String to, String token) throws MessagingException {
+    public void sendVerificationEmail(String to, String token) {
         String verificationUrl = baseUrl + "/api/auth/verify-email?token=" + token;
         
-        Context context = new Context();
-        context.setVariable("verificationUrl", verificationUrl);
-        context.setVariable("appName", appName);
-        
-        String htmlContent = templateEngine.process("email/email-verification", context);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("verificationUrl", verificationUrl);
+        variables.put("appName", appName);
         
-        sendHtmlEmail(to, "Xác nhận email của bạn", htmlContent);
+        emailOutboxService.enqueue(to, "Xác nhận email của bạn", "email/email-verification", variables);
     }
     
-    @Async
-    public void sendPasswordResetEmail(String to, String token) throws MessagingException {
+    public void sendPasswordResetEmail(String to, String token) {
         String resetUrl = baseUrl + "/reset-password?token=" + token;
         
-        Context context = new Context();
-        context.setVariable("resetUrl", resetUrl);
-        context.setVariable("appName", appName);
-        
-        String htmlContent = templateEngine.process("email/password-reset", context);
-        
-        sendHtmlEmail(to, "Yêu cầu đặt lại mật khẩu", htmlContent);
-    }
-    
-    private void sendHtmlEmail(String to, String subject, String htmlContent) throws MessagingException {
-        MimeMessage message = emailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-        
-        helper.setFrom(senderEmail);
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(htmlContent, true);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("resetUrl", resetUrl);
+        variables.put("appName", appName);
         
-        emailSender.send(message);
+        emailOutboxService.enqueue(to, "Yêu cầu đặt lại mật khẩu", "email/password-reset", variables);
     }
-}
\ No newline at end of file
+}
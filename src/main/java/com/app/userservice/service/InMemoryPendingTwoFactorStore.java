@@ -0,0 +1,86 @@
+package com.app.userservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-node store backed by a ConcurrentHashMap. Expired entries are swept periodically and the
+ * map never grows past app.security.two-factor.max-pending entries.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.two-factor.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPendingTwoFactorStore implements PendingTwoFactorStore {
+
+    private final Map<String, PendingLogin> pending = new ConcurrentHashMap<>();
+
+    @Value("${app.security.two-factor.max-pending:100000}")
+    private int maxPending;
+
+    @Override
+    public void save(String token, String username, Duration ttl) {
+        if (pending.size() >= maxPending) {
+            evictExpired();
+            // Still full: drop arbitrary entries rather than grow without bound
+            Iterator<String> keys = pending.keySet().iterator();
+            while (pending.size() >= maxPending && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        pending.put(token, new PendingLogin(username, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public Optional<String> find(String token) {
+        PendingLogin login = pending.get(token);
+        if (login == null) {
+            return Optional.empty();
+        }
+        if (login.isExpired(System.currentTimeMillis())) {
+            pending.remove(token, login);
+            return Optional.empty();
+        }
+        return Optional.of(login.username);
+    }
+
+    @Override
+    public boolean remove(String token) {
+        return pending.remove(token) != null;
+    }
+
+    @Override
+    public int recordFailure(String token) {
+        PendingLogin login = pending.get(token);
+        return login == null ? 0 : login.failures.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.two-factor.sweep-interval:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        pending.values().removeIf(login -> login.isExpired(now));
+    }
+
+    private static final class PendingLogin {
+        private final String username;
+        private final long expiresAt;
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private PendingLogin(String username, long expiresAt) {
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.app.userservice.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Store shared by all instances through the pending_two_factor_tokens table, so a login started on
+ * one node can be completed with verify-otp on another.
+ */
+@Component
+@ConditionalOnProperty(name = "app.security.two-factor.store", havingValue = "jdbc")
+public class JdbcPendingTwoFactorStore implements PendingTwoFactorStore {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void save(String token, String username, Duration ttl) {
+        jdbcTemplate.update(
+                "INSERT INTO pending_two_factor_tokens (token, username, expires_at, failed_attempts) VALUES (?, ?, ?, 0)",
+                token, username, Timestamp.valueOf(LocalDateTime.now().plus(ttl)));
+    }
+
+    @Override
+    public Optional<String> find(String token) {
+        List<String> usernames = jdbcTemplate.queryForList(
+                "SELECT username FROM pending_two_factor_tokens WHERE token = ? AND expires_at > ?",
+                String.class, token, Timestamp.valueOf(LocalDateTime.now()));
+        return usernames.stream().findFirst();
+    }
+
+    @Override
+    public boolean remove(String token) {
+        return jdbcTemplate.update("DELETE FROM pending_two_factor_tokens WHERE token = ?", token) > 0;
+    }
+
+    @Override
+    public int recordFailure(String token) {
+        if (jdbcTemplate.update(
+                "UPDATE pending_two_factor_tokens SET failed_attempts = failed_attempts + 1 WHERE token = ?", token) == 0) {
+            return 0;
+        }
+        List<Integer> failures = jdbcTemplate.queryForList(
+                "SELECT failed_attempts FROM pending_two_factor_tokens WHERE token = ?", Integer.class, token);
+        return failures.stream().findFirst().orElse(0);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.two-factor.sweep-interval:60000}")
+    public void evictExpired() {
+        jdbcTemplate.update("DELETE FROM pending_two_factor_tokens WHERE expires_at <= ?",
+                Timestamp.valueOf(LocalDateTime.now()));
+    }
+}
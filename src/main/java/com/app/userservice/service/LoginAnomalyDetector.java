@@ -0,0 +1,295 @@
+package com.app.userservice.service;
+
+import com.app.userservice.dto.LoginAnomaly;
+import com.app.userservice.util.Hashing;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Streaming detector over login events, in fixed memory and without reading login_history.
+ *
+ * - IP_MULTI_USERNAME: one IP fails for many distinct usernames (credential stuffing); the IP is blocked
+ *   in the LoginThrottler for a while.
+ * - USERNAME_MULTI_IP: one username fails from many distinct IPs (distributed guessing); logins to the
+ *   username are blocked in the LoginThrottler for a while. The account itself is never locked, so an
+ *   attacker cannot lock a victim out by spraying failures from a botnet.
+ * - IMPOSSIBLE_TRAVEL: two successful logins of a user from different networks within a short time.
+ *   There is no GeoIP data in this service, so a change of network prefix (/16 for IPv4, /64 for IPv6)
+ *   stands in for a change of location; it is only reported.
+ *
+ * IPs come from LoginHistoryService.getClientIp, which believes X-Forwarded-For only from configured
+ * trusted proxies, so a forged header cannot get someone else's address blocked.
+ *
+ * Distinct counts are exact: per IP and per username a small set of the other side's hashes seen in
+ * the window, capped at the threshold since nothing beyond it changes the outcome. The number of
+ * tracked keys is bounded and the least recently seen key is dropped when the limit is reached.
+ */
+@Component
+public class LoginAnomalyDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginAnomalyDetector.class);
+
+    public static final String IP_MULTI_USERNAME = "IP_MULTI_USERNAME";
+    public static final String USERNAME_MULTI_IP = "USERNAME_MULTI_IP";
+    public static final String IMPOSSIBLE_TRAVEL = "IMPOSSIBLE_TRAVEL";
+
+    @Autowired
+    private LoginThrottler loginThrottler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.anomaly.window:600000}")
+    private long windowMs;
+
+    @Value("${app.security.anomaly.max-tracked-keys:50000}")
+    private int maxTrackedKeys;
+
+    @Value("${app.security.anomaly.ip-username-threshold:20}")
+    private long ipUsernameThreshold;
+
+    @Value("${app.security.anomaly.username-ip-threshold:10}")
+    private long usernameIpThreshold;
+
+    @Value("${app.security.anomaly.ip-block-duration:900000}")
+    private long ipBlockDurationMs;
+
+    @Value("${app.security.anomaly.username-block-duration:900000}")
+    private long usernameBlockDurationMs;
+
+    @Value("${app.security.anomaly.travel-window:3600000}")
+    private long travelWindowMs;
+
+    @Value("${app.security.anomaly.travel-slots:65536}")
+    private int travelSlots;
+
+    @Value("${app.security.anomaly.max-detections:500}")
+    private int maxDetections;
+
+    private DistinctTracker usernamesPerIp;
+    private DistinctTracker ipsPerUsername;
+
+    // Last successful login per user, in a fixed table indexed by a hash of the user id
+    private AtomicLongArray travelUsers;
+    private AtomicLongArray travelStates;
+
+    private final Deque<LoginAnomaly> detections = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger detectionCount = new AtomicInteger();
+
+    // Subjects already reported in the current window, so a running attack is reported once
+    private final Map<String, Long> reportedUntil = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        usernamesPerIp = new DistinctTracker(windowMs, (int) ipUsernameThreshold, maxTrackedKeys);
+        ipsPerUsername = new DistinctTracker(windowMs, (int) usernameIpThreshold, maxTrackedKeys);
+        travelUsers = new AtomicLongArray(travelSlots);
+        travelStates = new AtomicLongArray(travelSlots);
+    }
+
+    public void onLoginFailure(String username, String ip) {
+        if (username == null || ip == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+
+        long usernames = usernamesPerIp.add(ip, username, now);
+        if (usernames >= ipUsernameThreshold
+                && report(IP_MULTI_USERNAME, ip, usernames, "Thất bại với " + usernames + " username khác nhau", now)) {
+            loginThrottler.blockIp(ip, ipBlockDurationMs);
+        }
+
+        long ips = ipsPerUsername.add(username, ip, now);
+        if (ips >= usernameIpThreshold
+                && report(USERNAME_MULTI_IP, username, ips, "Thất bại từ " + ips + " IP khác nhau", now)) {
+            loginThrottler.blockUsername(username, usernameBlockDurationMs);
+        }
+    }
+
+    public void onLoginSuccess(Long userId, String username, String ip) {
+        if (userId == null || ip == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long nowSeconds = now / 1000;
+        int prefixHash = (int) Hashing.murmur64(networkPrefix(ip).getBytes(StandardCharsets.UTF_8));
+        int slot = (int) ((Hashing.mix64(userId) & Long.MAX_VALUE) % travelSlots);
+
+        long previousUser = travelUsers.getAndSet(slot, userId);
+        long previousState = travelStates.getAndSet(slot, ((long) prefixHash << 32) | (nowSeconds & 0xFFFFFFFFL));
+
+        if (previousUser == userId && previousState != 0) {
+            int previousPrefix = (int) (previousState >>> 32);
+            long previousSeconds = previousState & 0xFFFFFFFFL;
+            if (previousPrefix != prefixHash && (nowSeconds - previousSeconds) * 1000 <= travelWindowMs) {
+                report(IMPOSSIBLE_TRAVEL, username, 2,
+                        "Đăng nhập từ mạng khác (" + ip + ") sau " + (nowSeconds - previousSeconds) + " giây", now);
+            }
+        }
+    }
+
+    /**
+     * Các phát hiện gần nhất, mới nhất trước
+     */
+    public List<LoginAnomaly> getRecentDetections() {
+        return new ArrayList<>(detections);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-throttle.cleanup-interval:60000}")
+    public void evictExpiredReports() {
+        long now = System.currentTimeMillis();
+        reportedUntil.values().removeIf(until -> until <= now);
+        usernamesPerIp.evictIdle(now);
+        ipsPerUsername.evictIdle(now);
+    }
+
+    private boolean report(String type, String subject, long count, String detail, long now) {
+        String key = type + ':' + subject;
+        Long until = reportedUntil.get(key);
+        if (until != null && until > now) {
+            return false;
+        }
+        if (until == null && reportedUntil.size() >= maxDetections) {
+            // Make room by dropping the oldest report; every entry lives windowMs, so it ends soonest
+            reportedUntil.values().removeIf(reported -> reported <= now);
+            if (reportedUntil.size() >= maxDetections) {
+                reportedUntil.entrySet().stream()
+                        .min(Map.Entry.comparingByValue())
+                        .ifPresent(oldest -> reportedUntil.remove(oldest.getKey(), oldest.getValue()));
+            }
+        }
+        if (until == null ? reportedUntil.putIfAbsent(key, now + windowMs) != null
+                : !reportedUntil.replace(key, until, now + windowMs)) {
+            // Another thread reported this subject first
+            return false;
+        }
+
+        detections.addFirst(new LoginAnomaly(type, subject, count, detail, LocalDateTime.now()));
+        if (detectionCount.incrementAndGet() > maxDetections && detections.pollLast() != null) {
+            detectionCount.decrementAndGet();
+        }
+
+        meterRegistry.counter("login.anomalies", "type", type).increment();
+        logger.warn("Login anomaly {} for {}: {}", type, subject, detail);
+        return true;
+    }
+
+    // /16 for IPv4, first four groups (/64) for IPv6
+    private String networkPrefix(String ip) {
+        if (ip.indexOf(':') >= 0) {
+            String[] groups = ip.split(":", -1);
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < Math.min(4, groups.length); i++) {
+                prefix.append(groups[i]).append(':');
+            }
+            return prefix.toString();
+        }
+        int first = ip.indexOf('.');
+        int second = first < 0 ? -1 : ip.indexOf('.', first + 1);
+        return second < 0 ? ip : ip.substring(0, second);
+    }
+
+    /**
+     * Distinct values seen per key within a sliding window, exact up to a cap. A key's set keeps
+     * the hashes of its most recently seen values in insertion order, so expired values are trimmed
+     * from the head and memory is bounded by maxKeys * cap.
+     */
+    static final class DistinctTracker {
+        private final Map<String, DistinctSet> keys = new ConcurrentHashMap<>();
+        private final long windowMs;
+        private final int cap;
+        private final int maxKeys;
+
+        DistinctTracker(long windowMs, int cap, int maxKeys) {
+            this.windowMs = windowMs;
+            this.cap = Math.max(1, cap);
+            this.maxKeys = maxKeys;
+        }
+
+        /**
+         * Record value under key and return the number of distinct values in the window, at most cap.
+         */
+        int add(String key, String value, long now) {
+            DistinctSet set = keys.get(key);
+            if (set == null) {
+                if (keys.size() >= maxKeys) {
+                    makeRoom(now);
+                }
+                set = keys.computeIfAbsent(key, k -> new DistinctSet());
+            }
+            return set.add(Hashing.murmur64(value.getBytes(StandardCharsets.UTF_8)), now, now - windowMs, cap);
+        }
+
+        void evictIdle(long now) {
+            long cutoff = now - windowMs;
+            keys.values().removeIf(set -> set.lastSeen() <= cutoff);
+        }
+
+        /**
+         * Drop idle keys, then the least recently seen ones until a tenth of the capacity is free.
+         * Freeing a batch keeps a burst of new keys from paying a full scan on every insert.
+         */
+        private synchronized void makeRoom(long now) {
+            if (keys.size() < maxKeys) {
+                return;
+            }
+            evictIdle(now);
+            int target = maxKeys - Math.max(1, maxKeys / 10);
+            if (keys.size() <= target) {
+                return;
+            }
+            List<Map.Entry<String, Long>> byLastSeen = new ArrayList<>(keys.size());
+            keys.forEach((key, set) -> byLastSeen.add(Map.entry(key, set.lastSeen())));
+            byLastSeen.sort(Map.Entry.comparingByValue());
+            int toEvict = keys.size() - target;
+            for (int i = 0; i < toEvict && i < byLastSeen.size(); i++) {
+                keys.remove(byLastSeen.get(i).getKey());
+            }
+        }
+    }
+
+    static final class DistinctSet {
+        // Value hash -> last seen (epoch ms), oldest first
+        private final LinkedHashMap<Long, Long> seen = new LinkedHashMap<>();
+        private volatile long lastSeen;
+
+        synchronized int add(long hash, long now, long cutoff, int cap) {
+            seen.remove(hash);
+            seen.put(hash, now);
+            lastSeen = now;
+
+            Iterator<Long> times = seen.values().iterator();
+            while (times.hasNext()) {
+                long time = times.next();
+                if (time > cutoff && seen.size() <= cap) {
+                    break;
+                }
+                times.remove();
+            }
+            return seen.size();
+        }
+
+        long lastSeen() {
+            return lastSeen;
+        }
+    }
+}
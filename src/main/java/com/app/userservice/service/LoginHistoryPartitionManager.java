@@ -0,0 +1,173 @@
+package com.app.userservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Keeps login_history range-partitioned by month on MySQL (opt-in).
+ *
+ * On first start the table is converted: its foreign key is dropped and the primary key becomes
+ * (id, login_time), as MySQL requires for partitioned tables. A daily job then adds the partitions
+ * for the coming months and drops those older than the retention period, which removes old history
+ * in constant time instead of running DELETEs.
+ *
+ * Every instance runs the job, so the DDL is serialised with a MySQL named lock (GET_LOCK): the
+ * instance that gets it does the work and the others skip the run, finding nothing left to do on
+ * their next one.
+ */
+@Component
+@ConditionalOnProperty(name = "app.login-history.partitioning.enabled", havingValue = "true")
+public class LoginHistoryPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginHistoryPartitionManager.class);
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final String MAX_PARTITION = "pmax";
+    private static final String LOCK_NAME = "login_history_partitions";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.login-history.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${app.login-history.retention-months:12}")
+    private int retentionMonths;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        withLock(() -> {
+            if (findPartitions().isEmpty()) {
+                partitionTable();
+            }
+            addFuturePartitions();
+            dropExpiredPartitions();
+        });
+    }
+
+    /**
+     * Tạo trước partition cho các tháng tới và xóa partition quá hạn lưu trữ
+     */
+    @Scheduled(cron = "${app.login-history.partitioning.cron:0 30 2 * * *}")
+    public void maintainPartitions() {
+        withLock(() -> {
+            addFuturePartitions();
+            dropExpiredPartitions();
+        });
+    }
+
+    /**
+     * Run the work while holding the named lock on a dedicated connection; the lock belongs to that
+     * session, so it is released even if this instance dies mid-run. The work itself may use other
+     * pooled connections.
+     */
+    private void withLock(Runnable work) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement lock = connection.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                lock.setString(1, LOCK_NAME);
+                try (ResultSet result = lock.executeQuery()) {
+                    if (!result.next() || result.getInt(1) != 1) {
+                        logger.debug("login_history partition maintenance is running on another instance");
+                        return null;
+                    }
+                }
+            }
+            try {
+                work.run();
+            } finally {
+                try (PreparedStatement release = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                    release.setString(1, LOCK_NAME);
+                    release.executeQuery().close();
+                }
+            }
+            return null;
+        });
+    }
+
+    private void partitionTable() {
+        List<String> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT CONSTRAINT_NAME FROM information_schema.TABLE_CONSTRAINTS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'login_history' AND CONSTRAINT_TYPE = 'FOREIGN KEY'",
+                String.class);
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute("ALTER TABLE login_history DROP FOREIGN KEY `" + foreignKey + "`");
+        }
+
+        jdbcTemplate.execute("ALTER TABLE login_history MODIFY login_time DATETIME(6) NOT NULL, "
+                + "DROP PRIMARY KEY, ADD PRIMARY KEY (id, login_time)");
+
+        LocalDate oldest = jdbcTemplate.queryForObject("SELECT DATE(MIN(login_time)) FROM login_history", LocalDate.class);
+        YearMonth first = oldest != null ? YearMonth.from(oldest) : YearMonth.now();
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+
+        StringJoiner partitions = new StringJoiner(", ");
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            partitions.add(partitionDefinition(month));
+        }
+        partitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE");
+
+        jdbcTemplate.execute("ALTER TABLE login_history PARTITION BY RANGE (TO_DAYS(login_time)) (" + partitions + ")");
+        logger.info("Partitioned login_history by month from {} to {}", first, last);
+    }
+
+    private void addFuturePartitions() {
+        YearMonth latest = findPartitions().stream()
+                .filter(name -> !MAX_PARTITION.equals(name))
+                .map(this::toMonth)
+                .max(YearMonth::compareTo)
+                .orElse(YearMonth.now().minusMonths(1));
+
+        // Partitions are split off pmax, so they can only be appended after the latest one
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        for (YearMonth month = latest.plusMonths(1); !month.isAfter(last); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("ALTER TABLE login_history REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                    + partitionDefinition(month) + ", PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+            logger.info("Added login_history partition for {}", month);
+        }
+    }
+
+    private void dropExpiredPartitions() {
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+        for (String name : findPartitions()) {
+            if (!MAX_PARTITION.equals(name) && toMonth(name).isBefore(oldestKept)) {
+                jdbcTemplate.execute("ALTER TABLE login_history DROP PARTITION " + name);
+                logger.info("Dropped login_history partition {}", name);
+            }
+        }
+    }
+
+    private List<String> findPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'login_history' AND PARTITION_NAME IS NOT NULL "
+                        + "ORDER BY PARTITION_ORDINAL_POSITION",
+                String.class);
+    }
+
+    // Partition pYYYYMM holds the rows of that month
+    private String partitionDefinition(YearMonth month) {
+        return "PARTITION " + month.format(PARTITION_NAME)
+                + " VALUES LESS THAN (TO_DAYS('" + month.plusMonths(1).atDay(1) + "'))";
+    }
+
+    private YearMonth toMonth(String partitionName) {
+        return YearMonth.parse(partitionName, PARTITION_NAME);
+    }
+}
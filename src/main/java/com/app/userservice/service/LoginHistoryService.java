@@ -1,15 +1,20 @@
 package com.app.userservice.service;
 
-import com.app.userservice.entity.user.LoginHistory;
+import com.app.userservice.dto.LoginHistoryDTO;
+import com.app.userservice.dto.LoginHistoryEvent;
 import com.app.userservice.entity.user.User;
 import com.app.userservice.repository.LoginHistoryRepository;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 public class LoginHistoryService {
@@ -17,90 +22,117 @@ public class LoginHistoryService {
     @Autowired
     private LoginHistoryRepository loginHistoryRepository;
     
+    @Autowired
+    private LoginHistoryWriter loginHistoryWriter;
+    
+    @Autowired
+    private LoginAnomalyDetector loginAnomalyDetector;
+    
+    @Autowired
+    private ActiveUserTracker activeUserTracker;
+    
+    // Reverse proxies (IPs or CIDRs) whose X-Forwarded-For is believed; empty = use the peer address only
+    @Value("${app.security.trusted-proxies:}")
+    private List<String> trustedProxies;
+    
+    private final List<IpAddressMatcher> trustedProxyMatchers = new ArrayList<>();
+    
+    @PostConstruct
+    void init() {
+        for (String proxy : trustedProxies) {
+            if (!proxy.isBlank()) {
+                trustedProxyMatchers.add(new IpAddressMatcher(proxy.trim()));
+            }
+        }
+    }
+    
     /**
-     * Ghi nhật ký đăng nhập thành công
+     * Ghi nhật ký đăng nhập thành công (bất đồng bộ)
      */
-    @Transactional
-    public void recordSuccessfulLogin(User user, HttpServletRequest request, String loginMethod) {
-        LoginHistory loginHistory = new LoginHistory();
-        loginHistory.setUser(user);
-        loginHistory.setIpAddress(getClientIp(request));
-        loginHistory.setUserAgent(request.getHeader("User-Agent"));
-        loginHistory.setDeviceInfo(extractDeviceInfo(request.getHeader("User-Agent")));
-        loginHistory.setLoginStatus(true);
-        loginHistory.setLoginMethod(loginMethod);
-        loginHistory.setLoginTime(LocalDateTime.now());
-        
-        loginHistoryRepository.save(loginHistory);
+    public void recordSuccessfulLogin(User user, HttpServletRequest request, String loginMethod, String sessionId) {
+        LoginHistoryEvent event = newEvent(user, request, true, loginMethod, null, sessionId);
+        loginAnomalyDetector.onLoginSuccess(user.getId(), user.getUsername(), event.getIpAddress());
+        activeUserTracker.record(user.getId());
+        loginHistoryWriter.append(event);
     }
     
     /**
-     * Ghi nhật ký đăng nhập thất bại
+     * Ghi nhật ký đăng nhập thất bại (bất đồng bộ); user là null nếu username không tồn tại
      */
-    @Transactional
-    public void recordFailedLogin(User user, HttpServletRequest request, String loginMethod, String failureReason) {
-        LoginHistory loginHistory = new LoginHistory();
-        loginHistory.setUser(user);
-        loginHistory.setIpAddress(getClientIp(request));
-        loginHistory.setUserAgent(request.getHeader("User-Agent"));
-        loginHistory.setDeviceInfo(extractDeviceInfo(request.getHeader("User-Agent")));
-        loginHistory.setLoginStatus(false);
-        loginHistory.setLoginMethod(loginMethod);
-        loginHistory.setLoginTime(LocalDateTime.now());
-        loginHistory.setFailureReason(failureReason);
-        
-        loginHistoryRepository.save(loginHistory);
+    public void recordFailedLogin(String username, User user, HttpServletRequest request, String loginMethod,
+            String failureReason) {
+        // Unknown usernames still count for the detector: stuffing mostly hits accounts that do not exist
+        loginAnomalyDetector.onLoginFailure(username, getClientIp(request));
+        if (user != null) {
+            loginHistoryWriter.append(newEvent(user, request, false, loginMethod, failureReason, null));
+        }
+    }
+    
+    // The request is read here, on the request thread; only the finished event is handed to the writer
+    private LoginHistoryEvent newEvent(User user, HttpServletRequest request, boolean success, String loginMethod,
+            String failureReason, String sessionId) {
+        String userAgent = request.getHeader("User-Agent");
+        // Cut to the column sizes: an oversized value would fail the whole multi-row insert
+        return new LoginHistoryEvent(user.getId(), truncate(getClientIp(request), 45), truncate(userAgent, 512),
+                success, loginMethod, LocalDateTime.now(), failureReason, sessionId, null);
+    }
+    
+    private String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
     }
     
     /**
-     * Ghi nhật ký đăng xuất
+     * Ghi nhật ký đăng xuất cho đúng phiên đăng nhập (bất đồng bộ, sau bản ghi đăng nhập)
      */
-    @Transactional
-    public void recordLogout(User user, LocalDateTime loginTime) {
-        List<LoginHistory> loginHistories = loginHistoryRepository.findByUserOrderByLoginTimeDesc(user);
-        
-        if (!loginHistories.isEmpty()) {
-            LoginHistory lastLogin = loginHistories.get(0);
-            lastLogin.setLogoutTime(LocalDateTime.now());
-            lastLogin.setSessionDuration(
-                    java.time.Duration.between(lastLogin.getLoginTime(), lastLogin.getLogoutTime()).getSeconds());
-            loginHistoryRepository.save(lastLogin);
+    public void recordLogout(String sessionId) {
+        if (sessionId != null) {
+            // Through the writer queue, so it is applied after the login row it closes has been inserted
+            loginHistoryWriter.append(new LoginHistoryEvent(null, null, null, false, null, null, null, sessionId,
+                    LocalDateTime.now()));
         }
     }
     
     /**
      * Lấy 10 lịch sử đăng nhập gần nhất của người dùng
      */
-    public List<LoginHistory> getRecentLoginHistory(User user) {
-        return loginHistoryRepository.findTop10ByUserOrderByLoginTimeDesc(user);
+    public List<LoginHistoryDTO> getRecentLoginHistory(User user) {
+        return loginHistoryRepository.findTop10ByUserOrderByLoginTimeDesc(user).stream()
+                .map(LoginHistoryDTO::fromEntity)
+                .collect(Collectors.toList());
     }
     
     /**
-     * Lấy địa chỉ IP của client
+     * Lấy địa chỉ IP của client; X-Forwarded-For chỉ được tin khi request đi qua proxy tin cậy
      */
-    private String getClientIp(HttpServletRequest request) {
+    public String getClientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
         String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
+        if (xForwardedFor == null || xForwardedFor.isEmpty() || !isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+        // The client controls the left of the header; the rightmost hop not added by our own
+        // proxies is the first address a trusted proxy actually saw
+        String[] hops = xForwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!hop.isEmpty() && !isTrustedProxy(hop)) {
+                return hop;
+            }
         }
-        return request.getRemoteAddr();
+        return hops[0].trim();
     }
     
-    /**
-     * Trích xuất thông tin thiết bị từ User-Agent
-     */
-    private String extractDeviceInfo(String userAgent) {
-        if (userAgent == null) {
-            return "Unknown";
-        }
-        
-        // Đơn giản hóa: trích xuất thông tin cơ bản từ User-Agent
-        if (userAgent.contains("Mobile")) {
-            return "Mobile";
-        } else if (userAgent.contains("Tablet")) {
-            return "Tablet";
-        } else {
-            return "Desktop";
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher matcher : trustedProxyMatchers) {
+            try {
+                if (matcher.matches(address)) {
+                    return true;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not an IP address (e.g. "unknown"), so not one of our proxies
+                return false;
+            }
         }
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,396 @@
+package com.app.userservice.service;
+
+import com.app.userservice.dto.LoginHistoryEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes login history off the request thread.
+ *
+ * Events go into a bounded in-memory queue that a single drain thread empties in multi-row INSERTs
+ * (login_history uses IDENTITY keys, so Hibernate cannot batch them). When the queue is full or the
+ * database is unavailable, events are appended to a local NDJSON spill file instead, and the file is
+ * replayed into the table once the database accepts writes again. Signin never waits on login_history.
+ *
+ * Logouts travel through the same queue and spill file as events carrying logoutTime, so the
+ * UPDATE closing a session runs after the insert of its login row. A logout that matches no row
+ * while older entries are still waiting in the spill file is spilled again and retried on the next
+ * replay, for up to a day.
+ *
+ * A batch rejected for its data (a constraint or column violation) is retried row by row; rows that
+ * still fail, and spill lines that cannot be parsed, go to a ".rejected" file next to the spill file
+ * instead of being retried forever.
+ */
+@Component
+public class LoginHistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginHistoryWriter.class);
+
+    private static final String INSERT_PREFIX = "INSERT INTO login_history "
+            + "(user_id, ip_address, user_agent_id, login_status, login_method, login_time, failure_reason, session_id) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String CLOSE_SESSION_SQL = "UPDATE login_history SET logout_time = ?, "
+            + "session_duration = TIMESTAMPDIFF(SECOND, login_time, ?) "
+            + "WHERE session_id = ? AND login_status = true AND logout_time IS NULL";
+    private static final Duration PENDING_LOGOUT_TTL = Duration.ofDays(1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserAgentRegistry userAgentRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.login-history.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.login-history.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.login-history.spill-file:data/login-history-spill.ndjson}")
+    private String spillFile;
+
+    private BlockingQueue<LoginHistoryEvent> queue;
+
+    private Thread drainThread;
+
+    private volatile boolean running;
+
+    private Counter writtenCounter;
+
+    private Counter spilledCounter;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        writtenCounter = Counter.builder("login.history.written").register(meterRegistry);
+        spilledCounter = Counter.builder("login.history.spilled").register(meterRegistry);
+        Gauge.builder("login.history.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+
+        running = true;
+        drainThread = new Thread(this::drainLoop, "login-history-writer");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    /**
+     * Đưa một bản ghi vào hàng đợi; không bao giờ chặn luồng đăng nhập
+     */
+    public void append(LoginHistoryEvent event) {
+        if (!queue.offer(event)) {
+            spill(List.of(event));
+        }
+    }
+
+    /**
+     * Ghi lại các bản ghi trong file spill vào database
+     */
+    @Scheduled(fixedDelayString = "${app.login-history.replay-interval:60000}")
+    public void replaySpillFile() {
+        Path spill = Paths.get(spillFile);
+        // Move the file aside first so new spills during the replay go to a fresh file. A ".replaying"
+        // file left by an earlier run is replayed first and never overwritten
+        Path replaying = replayingPath();
+        if (!Files.exists(spill) && !Files.exists(replaying)) {
+            return;
+        }
+        List<LoginHistoryEvent> events = new ArrayList<>();
+        List<String> unparsable = new ArrayList<>();
+        try {
+            synchronized (this) {
+                if (!Files.exists(replaying)) {
+                    Files.move(spill, replaying);
+                }
+            }
+            try (BufferedReader reader = Files.newBufferedReader(replaying, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        LoginHistoryEvent event = objectMapper.readValue(line, LoginHistoryEvent.class);
+                        // Required columns missing: the write would fail the same way on every replay
+                        if (isLogout(event) ? event.getSessionId() == null
+                                : event.getUserId() == null || event.getLoginTime() == null) {
+                            unparsable.add(line);
+                        } else {
+                            events.add(event);
+                        }
+                    } catch (IOException e) {
+                        unparsable.add(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Cannot read login history spill file {}: {}", replaying, e.getMessage());
+            return;
+        }
+        if (!unparsable.isEmpty()) {
+            logger.warn("Quarantining {} unparsable login history spill lines", unparsable.size());
+            appendLines(rejectedPath(), unparsable);
+        }
+
+        int replayed = 0;
+        for (int from = 0; from < events.size(); from += batchSize) {
+            List<LoginHistoryEvent> batch = events.subList(from, Math.min(from + batchSize, events.size()));
+            if (!write(batch)) {
+                // Database still unavailable: keep the rest for the next run
+                spill(events.subList(from + batch.size(), events.size()));
+                break;
+            }
+            replayed += batch.size();
+        }
+
+        try {
+            Files.deleteIfExists(replaying);
+        } catch (IOException e) {
+            logger.error("Cannot delete {}: {}", replaying, e.getMessage());
+        }
+        if (replayed > 0) {
+            logger.info("Replayed {} login history entries from the spill file", replayed);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        drainThread.interrupt();
+        drainThread.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Whatever is still queued goes to the spill file rather than being lost
+        List<LoginHistoryEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            spill(remaining);
+        }
+    }
+
+    private void drainLoop() {
+        List<LoginHistoryEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                LoginHistoryEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Insert the logins of a batch, then apply its logouts. Whatever cannot be written because the
+     * database is unavailable is spilled; returns false in that case.
+     */
+    private boolean write(List<LoginHistoryEvent> batch) {
+        List<LoginHistoryEvent> logins = new ArrayList<>(batch.size());
+        List<LoginHistoryEvent> logouts = new ArrayList<>();
+        for (LoginHistoryEvent event : batch) {
+            (isLogout(event) ? logouts : logins).add(event);
+        }
+        if (!logins.isEmpty() && !writeLogins(logins)) {
+            spill(logouts);
+            return false;
+        }
+        return closeSessions(logouts);
+    }
+
+    private boolean closeSessions(List<LoginHistoryEvent> logouts) {
+        for (int i = 0; i < logouts.size(); i++) {
+            LoginHistoryEvent logout = logouts.get(i);
+            Timestamp logoutTime = Timestamp.valueOf(logout.getLogoutTime());
+            try {
+                if (jdbcTemplate.update(CLOSE_SESSION_SQL, logoutTime, logoutTime, logout.getSessionId()) == 0
+                        && isLoginPending(logout)) {
+                    // The login row may still be in the spill file; try again after the next replay
+                    spill(List.of(logout));
+                }
+            } catch (Exception e) {
+                if (isDataError(e)) {
+                    logger.error("Dropping logout of session {}: {}", logout.getSessionId(), e.getMessage());
+                    reject(logout);
+                    continue;
+                }
+                logger.warn("Closing login sessions failed, spilling {} logouts to file: {}", logouts.size() - i, e.getMessage());
+                spill(logouts.subList(i, logouts.size()));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isLoginPending(LoginHistoryEvent logout) {
+        if (logout.getLogoutTime().isBefore(LocalDateTime.now().minus(PENDING_LOGOUT_TTL))) {
+            return false;
+        }
+        return Files.exists(Paths.get(spillFile)) || Files.exists(replayingPath());
+    }
+
+    private static boolean isLogout(LoginHistoryEvent event) {
+        return event.getLogoutTime() != null;
+    }
+
+    /**
+     * Insert login rows, falling back to row by row when the batch is rejected for its data. Rows
+     * that cannot be written because the database is unavailable are spilled; returns false then.
+     */
+    private boolean writeLogins(List<LoginHistoryEvent> batch) {
+        try {
+            insert(batch);
+            return true;
+        } catch (Exception e) {
+            if (!isDataError(e)) {
+                logger.warn("Login history insert of {} rows failed, spilling to file: {}", batch.size(), e.getMessage());
+                spill(batch);
+                return false;
+            }
+            logger.warn("Login history batch of {} rows rejected, retrying row by row: {}", batch.size(), e.getMessage());
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            LoginHistoryEvent event = batch.get(i);
+            try {
+                insert(List.of(event));
+            } catch (Exception e) {
+                if (isDataError(e)) {
+                    logger.error("Dropping login history row for user {} at {}: {}",
+                            event.getUserId(), event.getLoginTime(), e.getMessage());
+                    reject(event);
+                    continue;
+                }
+                logger.warn("Login history insert failed, spilling {} rows to file: {}", batch.size() - i, e.getMessage());
+                spill(batch.subList(i, batch.size()));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(List<LoginHistoryEvent> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        List<Object> args = new ArrayList<>(batch.size() * 8);
+        for (int i = 0; i < batch.size(); i++) {
+            LoginHistoryEvent event = batch.get(i);
+            sql.append(i == 0 ? ROW_PLACEHOLDERS : ", " + ROW_PLACEHOLDERS);
+            args.add(event.getUserId());
+            args.add(event.getIpAddress());
+            // The spill file keeps the raw UA, so entries can be resolved again on replay
+            args.add(userAgentRegistry.resolveId(event.getUserAgent()));
+            args.add(event.isLoginStatus());
+            args.add(event.getLoginMethod());
+            args.add(Timestamp.valueOf(event.getLoginTime()));
+            args.add(event.getFailureReason());
+            args.add(event.getSessionId());
+        }
+
+        jdbcTemplate.update(sql.toString(), args.toArray());
+        writtenCounter.increment(batch.size());
+    }
+
+    // Only constraint violations and rejected arguments fail the same way every time; anything else
+    // (connection loss, timeouts, deadlocks, a user_agents lookup failing mid-outage) is spilled and retried
+    private boolean isDataError(Exception e) {
+        return e instanceof DataIntegrityViolationException
+                || e instanceof InvalidDataAccessApiUsageException
+                || e instanceof IllegalArgumentException;
+    }
+
+    private void reject(LoginHistoryEvent event) {
+        try {
+            appendLines(rejectedPath(), List.of(objectMapper.writeValueAsString(event)));
+        } catch (IOException e) {
+            logger.error("Cannot serialise rejected login history row: {}", e.getMessage());
+        }
+    }
+
+    private Path replayingPath() {
+        Path spill = Paths.get(spillFile);
+        return spill.resolveSibling(spill.getFileName() + ".replaying");
+    }
+
+    private Path rejectedPath() {
+        Path spill = Paths.get(spillFile);
+        return spill.resolveSibling(spill.getFileName() + ".rejected");
+    }
+
+    private void spill(List<LoginHistoryEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>(events.size());
+        try {
+            for (LoginHistoryEvent event : events) {
+                lines.add(objectMapper.writeValueAsString(event));
+            }
+        } catch (IOException e) {
+            logger.error("Cannot serialise login history, {} entries lost: {}", events.size(), e.getMessage());
+            return;
+        }
+        if (appendLines(Paths.get(spillFile), lines)) {
+            spilledCounter.increment(events.size());
+        }
+    }
+
+    private synchronized boolean appendLines(Path file, List<String> lines) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            logger.error("Cannot write {}, {} entries lost: {}", file, lines.size(), e.getMessage());
+            return false;
+        }
+    }
+}
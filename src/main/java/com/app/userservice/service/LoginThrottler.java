@@ -0,0 +1,192 @@
+package com.app.userservice.service;
+
+import com.app.userservice.exception.LoginThrottledException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory sliding-window counter of failed logins per username and per client IP.
+ *
+ * Checked before the AuthenticationManager runs, so abusive bursts are rejected without a
+ * password hash or any database write. Each window is a small ring of time buckets updated with
+ * CAS only; keys live in a ConcurrentHashMap and idle keys are dropped periodically.
+ */
+@Component
+public class LoginThrottler {
+
+    private static final String USERNAME_PREFIX = "u:";
+    private static final String IP_PREFIX = "ip:";
+
+    @Value("${app.security.login-throttle.window:300000}")
+    private long windowMs;
+
+    @Value("${app.security.login-throttle.buckets:10}")
+    private int bucketCount;
+
+    @Value("${app.security.max-failed-attempts}")
+    private int maxUsernameFailures;
+
+    @Value("${app.security.login-throttle.max-ip-failures:50}")
+    private int maxIpFailures;
+
+    @Value("${app.security.login-throttle.max-tracked-keys:100000}")
+    private int maxTrackedKeys;
+
+    private final Map<String, SlidingWindow> windows = new ConcurrentHashMap<>();
+    
+    // Prefixed IP or username -> blocked until (epoch ms), set by LoginAnomalyDetector
+    private final Map<String, Long> blocked = new ConcurrentHashMap<>();
+
+    /**
+     * Từ chối ngay nếu username hoặc IP đã vượt ngưỡng trong cửa sổ thời gian
+     */
+    public void checkAllowed(String username, String ip) {
+        long now = System.currentTimeMillis();
+        if (isBlocked(IP_PREFIX + ip, now) || isBlocked(USERNAME_PREFIX + username, now)
+                || count(USERNAME_PREFIX + username, now) >= maxUsernameFailures
+                || count(IP_PREFIX + ip, now) >= maxIpFailures) {
+            throw new LoginThrottledException("Quá nhiều lần đăng nhập thất bại, vui lòng thử lại sau");
+        }
+    }
+
+    /**
+     * Ghi nhận một lần thất bại; trả về số lần thất bại của username trong cửa sổ hiện tại
+     */
+    public int recordFailure(String username, String ip) {
+        long now = System.currentTimeMillis();
+        increment(IP_PREFIX + ip, now);
+        return increment(USERNAME_PREFIX + username, now);
+    }
+
+    /**
+     * Chặn mọi lần đăng nhập từ IP trong một khoảng thời gian
+     */
+    public void blockIp(String ip, long durationMs) {
+        block(IP_PREFIX + ip, durationMs);
+    }
+
+    /**
+     * Tạm chặn đăng nhập vào một username; khóa tự hết hạn, không ghi vào tài khoản
+     */
+    public void blockUsername(String username, long durationMs) {
+        block(USERNAME_PREFIX + username, durationMs);
+    }
+
+    public void recordSuccess(String username) {
+        windows.remove(USERNAME_PREFIX + username);
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-throttle.cleanup-interval:60000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        windows.values().removeIf(window -> window.sum(now) == 0);
+        blocked.values().removeIf(until -> until <= now);
+    }
+
+    private boolean isBlocked(String key, long now) {
+        Long blockedUntil = blocked.get(key);
+        return blockedUntil != null && blockedUntil > now;
+    }
+
+    private void block(String key, long durationMs) {
+        long now = System.currentTimeMillis();
+        if (blocked.size() >= maxTrackedKeys) {
+            blocked.values().removeIf(until -> until <= now);
+            if (blocked.size() >= maxTrackedKeys) {
+                // Make room by dropping the block that would end soonest rather than ignoring this one
+                blocked.entrySet().stream()
+                        .min(Map.Entry.comparingByValue())
+                        .ifPresent(soonest -> blocked.remove(soonest.getKey(), soonest.getValue()));
+            }
+        }
+        blocked.merge(key, now + durationMs, Math::max);
+    }
+
+    private int count(String key, long now) {
+        SlidingWindow window = windows.get(key);
+        return window == null ? 0 : window.sum(now);
+    }
+
+    private int increment(String key, long now) {
+        SlidingWindow window = windows.get(key);
+        if (window == null) {
+            if (windows.size() >= maxTrackedKeys) {
+                evictIdle();
+                if (windows.size() >= maxTrackedKeys) {
+                    evictLeastFailing(now);
+                }
+            }
+            window = windows.computeIfAbsent(key, k -> new SlidingWindow(bucketCount, windowMs / bucketCount));
+        }
+        return window.increment(now);
+    }
+
+    /**
+     * Drop the tenth of the windows with the fewest failures. Flooding the map with junk keys only
+     * evicts other junk (one failure each), while keys close to the limit are kept, so a full map
+     * never switches throttling off. Amortised over the inserts it makes room for.
+     */
+    private void evictLeastFailing(long now) {
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>(windows.size());
+        windows.forEach((key, window) -> counts.add(Map.entry(key, window.sum(now))));
+        counts.sort(Map.Entry.comparingByValue());
+        int toEvict = Math.max(1, counts.size() / 10);
+        for (int i = 0; i < toEvict && i < counts.size(); i++) {
+            windows.remove(counts.get(i).getKey());
+        }
+    }
+
+    /**
+     * Ring of buckets, each packing (bucket epoch << 24 | count) into one long so a bucket can be
+     * rolled over and incremented with a single CAS.
+     */
+    static final class SlidingWindow {
+        private static final int COUNT_BITS = 24;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+        private final AtomicLongArray buckets;
+        private final long bucketMs;
+
+        SlidingWindow(int bucketCount, long bucketMs) {
+            this.buckets = new AtomicLongArray(bucketCount);
+            this.bucketMs = Math.max(1, bucketMs);
+        }
+
+        int increment(long now) {
+            long epoch = now / bucketMs;
+            int index = (int) (epoch % buckets.length());
+            long current;
+            long next;
+            do {
+                current = buckets.get(index);
+                if ((current >>> COUNT_BITS) == epoch) {
+                    next = (current & COUNT_MASK) == COUNT_MASK ? current : current + 1;
+                } else {
+                    next = (epoch << COUNT_BITS) | 1;
+                }
+            } while (!buckets.compareAndSet(index, current, next));
+            return sum(now);
+        }
+
+        int sum(long now) {
+            long epoch = now / bucketMs;
+            long oldest = epoch - buckets.length() + 1;
+            int total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                long value = buckets.get(i);
+                long bucketEpoch = value >>> COUNT_BITS;
+                if (bucketEpoch >= oldest && bucketEpoch <= epoch) {
+                    total += (int) (value & COUNT_MASK);
+                }
+            }
+            return total;
+        }
+    }
+}
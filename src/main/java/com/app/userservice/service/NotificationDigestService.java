@@ -0,0 +1,256 @@
+package com.app.userservice.service;
+
+import com.app.userservice.dto.TaskActivityEvent;
+import com.app.userservice.entity.user.User;
+import com.app.userservice.repository.UserPreferencesRepository;
+import com.app.userservice.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Collects task activity per recipient and sends one digest per recipient per interval.
+ *
+ * Events are added after the task change commits. Repeated events of the same kind on the same
+ * task collapse into the latest one, and each digest is capped at max-items, so a busy workspace
+ * costs one outbox row per recipient per interval instead of one email per event. Preferences are
+ * read once per flush for all recipients; pending digests live in memory on the instance that
+ * handled the change and are flushed on shutdown.
+ */
+@Service
+public class NotificationDigestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDigestService.class);
+
+    private static final Map<String, String> ACTION_LABELS = Map.of(
+            TaskActivityEvent.CREATED, "Công việc mới được giao",
+            TaskActivityEvent.UPDATED, "Công việc được cập nhật",
+            TaskActivityEvent.STATUS_CHANGED, "Trạng thái thay đổi",
+            TaskActivityEvent.PROGRESS_UPDATED, "Tiến độ thay đổi",
+            TaskActivityEvent.COMMENTED, "Bình luận mới",
+            TaskActivityEvent.ATTACHMENT_ADDED, "Tệp đính kèm mới");
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserPreferencesRepository userPreferencesRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.name}")
+    private String appName;
+
+    @Value("${app.base-url:http://localhost:8082}")
+    private String baseUrl;
+
+    @Value("${app.notification.digest.max-items:50}")
+    private int maxItems;
+
+    private final Map<Long, Digest> pending = new ConcurrentHashMap<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskActivity(TaskActivityEvent event) {
+        if (event.getRecipientUserIds() == null) {
+            return;
+        }
+        for (Long recipientId : event.getRecipientUserIds()) {
+            if (recipientId != null && !recipientId.equals(event.getActorUserId())) {
+                // A digest closed by a concurrent flush rejects the event; retry on a fresh one
+                while (!pending.computeIfAbsent(recipientId, id -> new Digest()).add(event, maxItems)) {
+                    Thread.onSpinWait();
+                }
+            }
+        }
+        meterRegistry.counter("notification.digest.events").increment();
+    }
+
+    /**
+     * Gửi email tổng hợp cho mỗi người nhận có hoạt động mới; trả về số email đã đưa vào outbox
+     */
+    @Scheduled(fixedDelayString = "${app.notification.digest.interval:900000}",
+            initialDelayString = "${app.notification.digest.interval:900000}")
+    public int flush() {
+        Map<Long, Digest> batch = new HashMap<>();
+        for (Long recipientId : new ArrayList<>(pending.keySet())) {
+            Digest digest = pending.remove(recipientId);
+            if (digest != null) {
+                digest.close();
+                batch.put(recipientId, digest);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> optedOut;
+        Map<Long, User> users;
+        try {
+            optedOut = new HashSet<>(userPreferencesRepository.findEmailOptedOutUserIds(batch.keySet()));
+
+            Set<Long> userIds = new HashSet<>(batch.keySet());
+            batch.values().forEach(digest -> userIds.addAll(digest.actorIds()));
+            users = userRepository.findAllById(userIds).stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+        } catch (RuntimeException e) {
+            // Database unavailable: keep the activity for the next flush instead of losing it
+            logger.error("Could not load recipients for {} notification digests, retrying next run: {}",
+                    batch.size(), e.getMessage());
+            requeue(batch);
+            return 0;
+        }
+
+        int sent = 0;
+        for (Map.Entry<Long, Digest> entry : batch.entrySet()) {
+            User recipient = users.get(entry.getKey());
+            // notificationWeb / notificationMobile have no delivery channel yet, so only email is honoured
+            if (recipient == null || recipient.getEmail() == null || recipient.getStatus() == 0
+                    || optedOut.contains(entry.getKey())) {
+                continue;
+            }
+            try {
+                enqueueDigest(recipient, entry.getValue(), users);
+                sent++;
+            } catch (RuntimeException e) {
+                logger.error("Could not queue notification digest for user {}: {}", recipient.getId(), e.getMessage());
+            }
+        }
+
+        meterRegistry.counter("notification.digest.sent").increment(sent);
+        return sent;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    // Events that arrived since the flush went to fresh digests; merge the old ones into them
+    private void requeue(Map<Long, Digest> batch) {
+        batch.forEach((recipientId, digest) -> {
+            while (!pending.computeIfAbsent(recipientId, id -> new Digest()).absorb(digest, maxItems)) {
+                Thread.onSpinWait();
+            }
+        });
+    }
+
+    private void enqueueDigest(User recipient, Digest digest, Map<Long, User> users) {
+        List<TaskActivityEvent> events = digest.events();
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (TaskActivityEvent event : events) {
+            User actor = event.getActorUserId() == null ? null : users.get(event.getActorUserId());
+            Map<String, Object> item = new HashMap<>();
+            item.put("taskTitle", event.getTaskTitle());
+            item.put("taskUrl", baseUrl + "/tasks/" + event.getTaskId());
+            item.put("action", ACTION_LABELS.getOrDefault(event.getAction(), event.getAction()));
+            item.put("detail", event.getDetail());
+            item.put("actor", actor == null ? null : actor.getFullName());
+            item.put("time", event.getOccurredAt() == null ? null : event.getOccurredAt().toString());
+            items.add(item);
+        }
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("appName", appName);
+        variables.put("fullName", recipient.getFullName());
+        variables.put("items", items);
+        variables.put("omitted", digest.omitted());
+
+        String subject = "Bạn có " + (events.size() + digest.omitted()) + " cập nhật công việc mới";
+        emailOutboxService.enqueue(recipient.getEmail(), subject, "email/task-digest", variables);
+    }
+
+    /**
+     * Pending events for one recipient, keyed by task and action so repeats keep only the latest.
+     */
+    private static final class Digest {
+        private final Map<String, TaskActivityEvent> events = new LinkedHashMap<>();
+        private int omitted;
+        private boolean closed;
+
+        synchronized boolean add(TaskActivityEvent event, int maxItems) {
+            if (closed) {
+                return false;
+            }
+            String key = event.getTaskId() + ":" + event.getAction();
+            if (events.containsKey(key)) {
+                events.remove(key);
+            } else if (events.size() >= maxItems) {
+                omitted++;
+                return true;
+            }
+            events.put(key, event);
+            return true;
+        }
+
+        /**
+         * Take in the events of an older, closed digest; events already here are newer and win.
+         */
+        synchronized boolean absorb(Digest older, int maxItems) {
+            if (closed) {
+                return false;
+            }
+            Map<String, TaskActivityEvent> merged = new LinkedHashMap<>();
+            for (TaskActivityEvent event : older.events()) {
+                String key = event.getTaskId() + ":" + event.getAction();
+                if (!events.containsKey(key)) {
+                    merged.put(key, event);
+                }
+            }
+            merged.putAll(events);
+
+            events.clear();
+            omitted += older.omitted();
+            for (Map.Entry<String, TaskActivityEvent> entry : merged.entrySet()) {
+                if (events.size() >= maxItems) {
+                    omitted++;
+                } else {
+                    events.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return true;
+        }
+
+        synchronized void close() {
+            closed = true;
+        }
+
+        synchronized List<TaskActivityEvent> events() {
+            return new ArrayList<>(events.values());
+        }
+
+        synchronized int omitted() {
+            return omitted;
+        }
+
+        synchronized Set<Long> actorIds() {
+            return events.values().stream()
+                    .map(TaskActivityEvent::getActorUserId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.app.userservice.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Holds logins that passed the password check and are waiting for an OTP, keyed by the temporary
+ * token returned to the client. Implementations must be safe to call from concurrent request threads.
+ */
+public interface PendingTwoFactorStore {
+
+    void save(String token, String username, Duration ttl);
+
+    /**
+     * Username of the pending login, empty when the token is unknown or expired.
+     */
+    Optional<String> find(String token);
+
+    /**
+     * Remove the token; returns false when it was already consumed, so a token can only complete one login.
+     */
+    boolean remove(String token);
+
+    /**
+     * Count a wrong OTP against the token; returns the failures so far, or 0 when the token is unknown.
+     */
+    int recordFailure(String token);
+}
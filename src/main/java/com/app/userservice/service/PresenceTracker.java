@@ -0,0 +1,122 @@
+package com.app.userservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory last-seen time per user, written behind to users.last_active_at.
+ *
+ * AuthTokenFilter touches the user on every authenticated request, which only sets an atomic
+ * timestamp. A scheduled flush writes the users whose timestamp moved since the last flush in one
+ * JDBC batch, so many requests by the same user become one UPDATE per interval. "Who is online"
+ * is answered from the map; it covers the requests served by this instance.
+ */
+@Component
+public class PresenceTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PresenceTracker.class);
+
+    // Never moves last_active_at backwards, e.g. when another instance already wrote a newer value
+    private static final String UPDATE_SQL =
+            "UPDATE users SET last_active_at = ? WHERE id = ? AND (last_active_at IS NULL OR last_active_at < ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.presence.online-window:300000}")
+    private long onlineWindowMs;
+
+    @Value("${app.presence.batch-size:500}")
+    private int batchSize;
+
+    private final Map<Long, Presence> presences = new ConcurrentHashMap<>();
+
+    public void touch(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Presence presence = presences.computeIfAbsent(userId, id -> new Presence());
+        // Sub-second precision is not needed; skip the write to keep the cache line quiet
+        if (now - presence.lastSeen.get() >= 1000) {
+            presence.lastSeen.set(now);
+        }
+    }
+
+    /**
+     * Người dùng có request trong khoảng thời gian online-window, kèm thời điểm hoạt động gần nhất
+     */
+    public Map<Long, LocalDateTime> getOnlineUsers() {
+        long since = System.currentTimeMillis() - onlineWindowMs;
+        Map<Long, LocalDateTime> online = new LinkedHashMap<>();
+        presences.forEach((userId, presence) -> {
+            long lastSeen = presence.lastSeen.get();
+            if (lastSeen >= since) {
+                online.put(userId, toLocalDateTime(lastSeen));
+            }
+        });
+        return online;
+    }
+
+    /**
+     * Ghi last_active_at của những người dùng đã hoạt động từ lần ghi trước
+     */
+    @Scheduled(fixedDelayString = "${app.presence.flush-interval:30000}")
+    public void flush() {
+        long idleBefore = System.currentTimeMillis() - onlineWindowMs;
+        List<Object[]> batch = new ArrayList<>();
+        List<Runnable> markFlushed = new ArrayList<>();
+
+        for (Map.Entry<Long, Presence> entry : presences.entrySet()) {
+            Presence presence = entry.getValue();
+            long lastSeen = presence.lastSeen.get();
+            if (lastSeen > presence.flushed) {
+                Timestamp timestamp = Timestamp.valueOf(toLocalDateTime(lastSeen));
+                batch.add(new Object[] {timestamp, entry.getKey(), timestamp});
+                markFlushed.add(() -> presence.flushed = lastSeen);
+            } else if (lastSeen < idleBefore) {
+                // Flushed and offline: drop it, a later request re-creates the entry
+                presences.remove(entry.getKey(), presence);
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            for (int from = 0; from < batch.size(); from += batchSize) {
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batch.subList(from, Math.min(from + batchSize, batch.size())));
+            }
+            markFlushed.forEach(Runnable::run);
+        } catch (Exception e) {
+            // Nothing is marked flushed, so the next run retries with the newest values
+            logger.warn("Cannot flush last_active_at for {} users: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault());
+    }
+
+    private static final class Presence {
+        private final AtomicLong lastSeen = new AtomicLong();
+        // Only read and written by the flush thread
+        private long flushed;
+    }
+}
@@ -0,0 +1,138 @@
+package com.app.userservice.service;
+
+import com.app.userservice.entity.user.RefreshToken;
+import com.app.userservice.entity.user.User;
+import com.app.userservice.exception.TokenRefreshException;
+import com.app.userservice.repository.RefreshTokenRepository;
+import com.app.userservice.security.jwt.JwtUtils;
+import com.app.userservice.security.service.UserDetailsImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Issues and rotates opaque, single-use refresh tokens.
+ * Refreshing never touches the password encoder: it is one indexed lookup by token hash,
+ * one conditional update and one insert. Each token carries the user's security stamp at issue,
+ * so rotating the stamp (password change or reset, role change, lock) also ends refresh.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Value("${app.jwt.refresh-expiration}")
+    private long refreshExpirationMs;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    /**
+     * Tạo refresh token đầu tiên cho một phiên đăng nhập; familyId chính là session id
+     */
+    @Transactional
+    public String issue(User user, String familyId) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(user);
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setFamilyId(familyId);
+        refreshToken.setSecurityStamp(user.getSecurityStamp());
+        refreshToken.setExpiresAt(LocalDateTime.now().plusSeconds(refreshExpirationMs / 1000));
+        refreshTokenRepository.save(refreshToken);
+
+        return rawToken;
+    }
+
+    /**
+     * Đổi refresh token lấy access token mới và refresh token mới.
+     * Dùng lại một token đã dùng sẽ thu hồi toàn bộ family.
+     */
+    @Transactional(noRollbackFor = TokenRefreshException.class)
+    public Map<String, Object> rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new TokenRefreshException("Refresh token không hợp lệ"));
+
+        LocalDateTime now = LocalDateTime.now();
+
+        if (current.getRevokedAt() != null) {
+            throw new TokenRefreshException("Refresh token đã bị thu hồi");
+        }
+
+        if (current.isExpired()) {
+            throw new TokenRefreshException("Refresh token đã hết hạn");
+        }
+
+        if (refreshTokenRepository.markUsed(current.getId(), now) == 0) {
+            // Token đã được dùng trước đó: có thể đã bị đánh cắp
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            logger.warn("Refresh token reuse detected for user {}, family {} revoked",
+                    current.getUser().getUsername(), current.getFamilyId());
+            throw new TokenRefreshException("Refresh token đã được sử dụng");
+        }
+
+        User user = current.getUser();
+        if (!user.isAccountNonLocked() || user.getStatus() != 1) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            throw new TokenRefreshException("Tài khoản không còn hoạt động");
+        }
+        
+        // Rows issued before the stamp was stored have none and are rejected as well
+        if (current.getSecurityStamp() == null || current.getSecurityStamp() != user.getSecurityStamp()) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId(), now);
+            throw new TokenRefreshException("Phiên đăng nhập đã hết hiệu lực, vui lòng đăng nhập lại");
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", jwtUtils.generateJwtToken(UserDetailsImpl.build(user), current.getFamilyId()));
+        response.put("refreshToken", issue(user, current.getFamilyId()));
+        return response;
+    }
+
+    /**
+     * Thu hồi family chứa refresh token (đăng xuất)
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    /**
+     * Thu hồi toàn bộ refresh token của một phiên
+     */
+    @Transactional
+    public void revokeSession(String familyId) {
+        refreshTokenRepository.revokeFamily(familyId, LocalDateTime.now());
+    }
+
+    private String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.app.userservice.dto.RoleDTO;
 import com.app.userservice.entity.user.Role;
 import com.app.userservice.repository.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,22 +18,28 @@ public class RoleAdminService {
     @Autowired
     private RoleRepository roleRepository;
     
+    @Autowired
+    private RoleRegistry roleRegistry;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     public List<RoleDTO> getAllRoles() {
-        List<Role> roles = roleRepository.findAll();
+        List<Role> roles = roleRegistry.findAll();
         return roles.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
     public RoleDTO getRoleById(Long id) {
-        Role role = roleRepository.findById(id)
+        Role role = roleRegistry.findById(id)
                 .orElseThrow(() -> new RuntimeException("Vai trò không tồn tại"));
         return convertToDTO(role);
     }
     
     @Transactional
     public MessageResponse createRole(RoleDTO roleDTO) {
-        if (roleRepository.findByName(roleDTO.getName()).isPresent()) {
+        if (roleRegistry.existsByName(roleDTO.getName())) {
             return new MessageResponse("Tên vai trò đã tồn tại", false);
         }
         
@@ -42,6 +49,7 @@ public class RoleAdminService {
         role.setSystem(false);
         
         roleRepository.save(role);
+        eventPublisher.publishEvent(new RolesChangedEvent());
         
         return new MessageResponse("Vai trò đã được tạo thành công", true);
     }
@@ -56,7 +64,7 @@ public class RoleAdminService {
         }
         
         if (!role.getName().equals(roleDTO.getName()) && 
-                roleRepository.findByName(roleDTO.getName()).isPresent()) {
+                roleRegistry.existsByName(roleDTO.getName())) {
             return new MessageResponse("Tên vai trò đã tồn tại", false);
         }
         
@@ -64,6 +72,7 @@ public class RoleAdminService {
         role.setDescription(roleDTO.getDescription());
         
         roleRepository.save(role);
+        eventPublisher.publishEvent(new RolesChangedEvent());
         
         return new MessageResponse("Vai trò đã được cập nhật thành công", true);
     }
@@ -78,6 +87,7 @@ public class RoleAdminService {
         }
         
         roleRepository.delete(role);
+        eventPublisher.publishEvent(new RolesChangedEvent());
         
         return new MessageResponse("Vai trò đã được xóa thành công", true);
     }
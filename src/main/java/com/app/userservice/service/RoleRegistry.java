@@ -0,0 +1,102 @@
+package com.app.userservice.service;
+
+import com.app.userservice.entity.user.Role;
+import com.app.userservice.repository.RoleRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory snapshot of the roles table.
+ *
+ * Roles almost never change, so lookups by name or id are plain reads of an immutable map instead
+ * of a query each. The snapshot is rebuilt with one query after a role change commits
+ * (RolesChangedEvent) and replaced with a single volatile write, so readers never see a partial
+ * update; a periodic refresh picks up changes made on other instances. Lookups return copies, so
+ * callers can attach them to entities without sharing state between threads or sessions.
+ */
+@Component
+public class RoleRegistry {
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+    @PostConstruct
+    void init() {
+        refresh();
+    }
+
+    public Optional<Role> findByName(String name) {
+        return Optional.ofNullable(snapshot.byName.get(name)).map(RoleRegistry::copy);
+    }
+
+    public Optional<Role> findById(Long id) {
+        return Optional.ofNullable(snapshot.byId.get(id)).map(RoleRegistry::copy);
+    }
+
+    public boolean existsByName(String name) {
+        return snapshot.byName.containsKey(name);
+    }
+
+    public List<Role> findAll() {
+        List<Role> roles = new ArrayList<>();
+        snapshot.byId.values().forEach(role -> roles.add(copy(role)));
+        roles.sort(Comparator.comparing(Role::getId));
+        return roles;
+    }
+
+    /**
+     * Tên vai trò -> id, dùng khi ghi user_roles trực tiếp bằng JDBC
+     */
+    public Map<String, Long> getRoleIds() {
+        Map<String, Long> roleIds = new HashMap<>();
+        snapshot.byName.forEach((name, role) -> roleIds.put(name, role.getId()));
+        return roleIds;
+    }
+
+    /**
+     * Nạp lại toàn bộ vai trò từ cơ sở dữ liệu và thay thế snapshot hiện tại
+     */
+    @Scheduled(fixedDelayString = "${app.roles.refresh-interval:300000}",
+            initialDelayString = "${app.roles.refresh-interval:300000}")
+    public void refresh() {
+        Map<String, Role> byName = new HashMap<>();
+        Map<Long, Role> byId = new HashMap<>();
+        for (Role role : roleRepository.findAll()) {
+            Role frozen = copy(role);
+            byName.put(frozen.getName(), frozen);
+            byId.put(frozen.getId(), frozen);
+        }
+        snapshot = new Snapshot(Map.copyOf(byName), Map.copyOf(byId));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRolesChanged(RolesChangedEvent event) {
+        refresh();
+    }
+
+    private static Role copy(Role role) {
+        return new Role(role.getId(), role.getName(), role.getDescription(), role.isSystem());
+    }
+
+    private static final class Snapshot {
+        private final Map<String, Role> byName;
+        private final Map<Long, Role> byId;
+
+        private Snapshot(Map<String, Role> byName, Map<Long, Role> byId) {
+            this.byName = byName;
+            this.byId = byId;
+        }
+    }
+}
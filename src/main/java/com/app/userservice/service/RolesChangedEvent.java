@@ -0,0 +1,7 @@
+package com.app.userservice.service;
+
+/**
+ * Published when a role is created, renamed or deleted; RoleRegistry reloads after the commit.
+ */
+public class RolesChangedEvent {
+}
@@ -2,6 +2,7 @@ package com.app.userservice.service;
 
 import com.app.userservice.dto.MessageResponse;
 import com.app.userservice.dto.TaskAttachmentDTO;
+import com.app.userservice.dto.TaskActivityEvent;
 import com.app.userservice.dto.TaskCommentDTO;
 import com.app.userservice.dto.TaskDTO;
 import com.app.userservice.entity.organization.Department;
@@ -15,10 +16,13 @@ import com.app.userservice.entity.user.User;
 import com.app.userservice.repository.*;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -45,6 +49,9 @@ public class TaskService {
     @Autowired
     private WorkspaceRepository workspaceRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Get all tasks
      */
@@ -160,6 +167,7 @@ public class TaskService {
         }
 
         taskRepository.save(task);
+        publishActivity(task, TaskActivityEvent.CREATED, null, creatorUserId);
 
         return new MessageResponse("Task created successfully", true);
     }
@@ -221,6 +229,7 @@ public class TaskService {
         }
 
         taskRepository.save(task);
+        publishActivity(task, TaskActivityEvent.UPDATED, null, updaterUserId);
 
         return new MessageResponse("Task updated successfully", true);
     }
@@ -245,6 +254,7 @@ public class TaskService {
         }
 
         taskRepository.save(task);
+        publishActivity(task, TaskActivityEvent.STATUS_CHANGED, status.name(), updaterUserId);
 
         return new MessageResponse("Task status updated successfully", true);
     }
@@ -274,6 +284,7 @@ public class TaskService {
         }
 
         taskRepository.save(task);
+        publishActivity(task, TaskActivityEvent.PROGRESS_UPDATED, progress + "%", updaterUserId);
 
         return new MessageResponse("Task progress updated successfully", true);
     }
@@ -296,6 +307,7 @@ public class TaskService {
         comment.setCreatedAt(LocalDateTime.now());
         
         taskCommentRepository.save(comment);
+        publishActivity(task, TaskActivityEvent.COMMENTED, abbreviate(commentDTO.getContent()), userId);
         
         return new MessageResponse("Comment added successfully", true);
     }
@@ -321,6 +333,7 @@ public class TaskService {
         attachment.setUploadedAt(LocalDateTime.now());
         
         taskAttachmentRepository.save(attachment);
+        publishActivity(task, TaskActivityEvent.ATTACHMENT_ADDED, attachmentDTO.getFileName(), userId);
         
         return new MessageResponse("Attachment added successfully", true);
     }
@@ -347,6 +360,31 @@ public class TaskService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Notify the task's watchers and assignee; delivered as a digest after the transaction commits
+     */
+    private void publishActivity(Task task, String action, String detail, Long actorUserId) {
+        Set<Long> recipients = new HashSet<>();
+        task.getWatchers().forEach(watcher -> recipients.add(watcher.getId()));
+        if (task.getAssignee() != null && task.getAssignee().getUser() != null) {
+            recipients.add(task.getAssignee().getUser().getId());
+        }
+        recipients.remove(actorUserId);
+        if (recipients.isEmpty()) {
+            return;
+        }
+        
+        eventPublisher.publishEvent(new TaskActivityEvent(task.getId(), task.getTitle(), action, detail,
+                actorUserId, recipients, LocalDateTime.now()));
+    }
+    
+    private String abbreviate(String text) {
+        if (text == null || text.length() <= 200) {
+            return text;
+        }
+        return text.substring(0, 200) + "...";
+    }
+
     /**
      * Convert Task entity to DTO
      */
@@ -4,8 +4,8 @@ import com.app.userservice.dto.MessageResponse;
 import com.app.userservice.dto.UserAdminDTO;
 import com.app.userservice.entity.user.Role;
 import com.app.userservice.entity.user.User;
-import com.app.userservice.repository.RoleRepository;
 import com.app.userservice.repository.UserRepository;
+import com.app.userservice.security.service.SecurityStampService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -22,11 +22,20 @@ public class UserAdminService {
     private UserRepository userRepository;
     
     @Autowired
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
     
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private SecurityStampService securityStampService;
+    
+    @Autowired
+    private ActiveUserTracker activeUserTracker;
+    
+    @Autowired
+    private PresenceTracker presenceTracker;
+    
     /**
      * Lấy tất cả người dùng
      */
@@ -78,7 +87,7 @@ public class UserAdminService {
             Set<Role> roles = new HashSet<>();
             
             for (String roleName : userDTO.getRoles()) {
-                Role role = roleRepository.findByName(roleName)
+                Role role = roleRegistry.findByName(roleName)
                         .orElseThrow(() -> new RuntimeException("Vai trò không tồn tại: " + roleName));
                 roles.add(role);
             }
@@ -86,7 +95,7 @@ public class UserAdminService {
             user.setRoles(roles);
         } else {
             // Mặc định USER role
-            Role userRole = roleRepository.findByName("USER")
+            Role userRole = roleRegistry.findByName("USER")
                     .orElseThrow(() -> new RuntimeException("Vai trò USER không tồn tại"));
             user.setRoles(new HashSet<>(Collections.singletonList(userRole)));
         }
@@ -116,6 +125,9 @@ public class UserAdminService {
             return new MessageResponse("Email đã tồn tại", false);
         }
         
+        // Rotate trước khi đổi username để cache theo username cũ bị xóa
+        securityStampService.rotate(user);
+        
         // Cập nhật thông tin
         user.setUsername(userDTO.getUsername());
         user.setEmail(userDTO.getEmail());
@@ -145,6 +157,7 @@ public class UserAdminService {
         
         // Soft delete: đặt status = 0 (inactive)
         user.setStatus(0);
+        securityStampService.rotate(user);
         userRepository.save(user);
         
         return new MessageResponse("Người dùng đã được vô hiệu hóa thành công", true);
@@ -159,6 +172,7 @@ public class UserAdminService {
                 .orElseThrow(() -> new RuntimeException("Người dùng không tồn tại"));
         
         user.setStatus(status);
+        securityStampService.rotate(user);
         userRepository.save(user);
         
         return new MessageResponse("Trạng thái người dùng đã được cập nhật thành công", true);
@@ -175,12 +189,13 @@ public class UserAdminService {
         Set<Role> roles = new HashSet<>();
         
         for (String roleName : roleNames) {
-            Role role = roleRepository.findByName(roleName)
+            Role role = roleRegistry.findByName(roleName)
                     .orElseThrow(() -> new RuntimeException("Vai trò không tồn tại: " + roleName));
             roles.add(role);
         }
         
         user.setRoles(roles);
+        securityStampService.rotate(user);
         userRepository.save(user);
         
         return new MessageResponse("Vai trò người dùng đã được cập nhật thành công", true);
@@ -194,8 +209,10 @@ public class UserAdminService {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Người dùng không tồn tại"));
         
+        // No lockTime: an admin lock stays until an admin unlocks, it does not expire
         user.setAccountNonLocked(false);
-        user.setLockTime(LocalDateTime.now());
+        user.setLockTime(null);
+        securityStampService.rotate(user);
         userRepository.save(user);
         
         return new MessageResponse("Tài khoản người dùng đã bị khóa", true);
@@ -212,6 +229,7 @@ public class UserAdminService {
         user.setAccountNonLocked(true);
         user.setLockTime(null);
         user.setFailedAttempt(0);
+        securityStampService.rotate(user);
         userRepository.save(user);
         
         return new MessageResponse("Tài khoản người dùng đã được mở khóa", true);
@@ -230,10 +248,34 @@ public class UserAdminService {
         stats.put("activeUsers", activeUsers);
         stats.put("newUsersToday", newUsersToday);
         stats.put("inactiveUsers", totalUsers - activeUsers);
+        // Ước lượng DAU/WAU/MAU từ HyperLogLog, sai số khoảng 1%
+        stats.putAll(activeUserTracker.getActiveUserCounts());
         
         return stats;
     }
     
+    /**
+     * Người dùng đang online (theo bộ nhớ, không truy vấn database)
+     */
+    public Map<String, Object> getOnlineUsers() {
+        Map<Long, LocalDateTime> online = presenceTracker.getOnlineUsers();
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("count", online.size());
+        result.put("users", online);
+        return result;
+    }
+    
+    /**
+     * Người dùng hoạt động (ước lượng) của từng công ty trong số ngày gần nhất
+     */
+    public Map<String, Object> getCompanyActiveUsers(int days) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("days", days);
+        stats.put("companies", activeUserTracker.getCompanyActiveUsers(days));
+        return stats;
+    }
+    
     /**
      * Chuyển đổi từ User sang UserAdminDTO
      */
@@ -0,0 +1,141 @@
+package com.app.userservice.service;
+
+import com.app.userservice.entity.user.UserAgentEntry;
+import com.app.userservice.repository.UserAgentRepository;
+import com.app.userservice.util.UserAgentParser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps User-Agent strings to rows of the user_agents dictionary.
+ *
+ * The number of distinct UAs is small compared to the number of logins, so an LRU in front of the
+ * table answers almost every lookup; a miss parses the UA once and inserts it. Used by the login
+ * history writer thread, never on the request path.
+ *
+ * UAs are normalised (trimmed, whitespace collapsed, cut to max-length) before hashing, and the table
+ * is capped: once it holds max-entries rows, new UAs are recorded under a shared entry per parsed
+ * browser/OS/device class, so randomised or junk UAs cannot grow it without bound.
+ */
+@Component
+public class UserAgentRegistry {
+
+    private final UserAgentRepository userAgentRepository;
+
+    private final Cache<String, Long> cache;
+
+    private final int maxLength;
+
+    private final long maxEntries;
+
+    // Rows in user_agents as last counted plus those inserted since; -1 until first counted
+    private final AtomicLong entryCount = new AtomicLong(-1);
+
+    public UserAgentRegistry(UserAgentRepository userAgentRepository, MeterRegistry meterRegistry,
+            @Value("${app.login-history.user-agent-cache.max-size:10000}") long maxSize,
+            @Value("${app.login-history.user-agent.max-length:256}") int maxLength,
+            @Value("${app.login-history.user-agent.max-entries:100000}") long maxEntries) {
+        this.userAgentRepository = userAgentRepository;
+        this.maxLength = maxLength;
+        this.maxEntries = maxEntries;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userAgents");
+    }
+
+    /**
+     * Id của User-Agent trong bảng từ điển; tạo mới nếu chưa có. Trả về null nếu không có User-Agent
+     */
+    public Long resolveId(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return null;
+        }
+        return cache.get(normalize(userAgent), this::findOrCreate);
+    }
+
+    /**
+     * Đếm lại số dòng của bảng user_agents (các instance khác cũng ghi vào bảng)
+     */
+    @Scheduled(fixedDelayString = "${app.login-history.user-agent.count-interval:3600000}")
+    public void refreshEntryCount() {
+        entryCount.set(userAgentRepository.count());
+    }
+
+    private Long findOrCreate(String userAgent) {
+        String uaHash = hash(userAgent);
+        return userAgentRepository.findByUaHash(uaHash)
+                .map(UserAgentEntry::getId)
+                .orElseGet(() -> {
+                    UserAgentParser.Result parsed = UserAgentParser.parse(userAgent);
+                    if (isFull()) {
+                        // Keep what the history needs (browser, OS, device class) without a row per UA
+                        String generic = "~" + parsed.getBrowser() + "; " + parsed.getOs() + "; " + parsed.getDeviceClass();
+                        String genericHash = hash(generic);
+                        return userAgentRepository.findByUaHash(genericHash)
+                                .map(UserAgentEntry::getId)
+                                .orElseGet(() -> create(generic, genericHash, parsed));
+                    }
+                    return create(userAgent, uaHash, parsed);
+                });
+    }
+
+    private boolean isFull() {
+        if (entryCount.get() < 0) {
+            refreshEntryCount();
+        }
+        return entryCount.get() >= maxEntries;
+    }
+
+    private Long create(String userAgent, String uaHash, UserAgentParser.Result parsed) {
+
+        UserAgentEntry entry = new UserAgentEntry();
+        entry.setUaHash(uaHash);
+        entry.setUserAgent(userAgent);
+        entry.setBrowser(parsed.getBrowser());
+        entry.setOs(parsed.getOs());
+        entry.setDeviceClass(parsed.getDeviceClass());
+        entry.setCreatedAt(LocalDateTime.now());
+
+        try {
+            Long id = userAgentRepository.saveAndFlush(entry).getId();
+            entryCount.incrementAndGet();
+            return id;
+        } catch (DataIntegrityViolationException e) {
+            // Inserted concurrently by another instance
+            return userAgentRepository.findByUaHash(uaHash)
+                    .map(UserAgentEntry::getId)
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    // Trimmed, runs of whitespace collapsed and cut to max-length, so trivial variants share a row
+    private String normalize(String userAgent) {
+        String normalized = userAgent.trim().replaceAll("\\s+", " ");
+        return normalized.length() > maxLength ? normalized.substring(0, maxLength) : normalized;
+    }
+
+    private String hash(String userAgent) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(userAgent.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,531 @@
+package com.app.userservice.service;
+
+import com.app.userservice.dto.UserImportResult;
+import com.app.userservice.exception.ServiceOverloadedException;
+import com.app.userservice.repository.UserRepository;
+import com.app.userservice.security.crypto.BoundedPasswordEncoder;
+import com.app.userservice.util.CsvReader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming bulk user import from CSV (with a header row) or NDJSON.
+ *
+ * The input is read one record at a time and handled in chunks of chunk-size rows, so memory
+ * depends on the chunk size rather than the file size. Per chunk: duplicate usernames/emails are
+ * checked with two IN queries, passwords are hashed in parallel on the password hashing pool
+ * (holding at most half of its threads by default, and never all of them, so logins keep
+ * working), and users and their roles are written with JDBC batch inserts in one transaction.
+ * Invalid rows are reported with their line number and skipped; the error list is capped at
+ * max-errors.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    public static final String FORMAT_CSV = "csv";
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+    private static final Pattern ROLE_SEPARATOR = Pattern.compile("[;|]");
+
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (username, password, email, full_name, phone_number, status, email_verified, " +
+            "two_factor_enabled, account_non_locked, failed_attempt, security_stamp, is_system, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, FALSE, TRUE, 0, 0, FALSE, ?, ?)";
+
+    private static final String INSERT_USER_ROLE_SQL = "INSERT INTO user_roles (user_id, role_id) VALUES (?, ?)";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.user-import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.user-import.max-errors:1000}")
+    private int maxErrors;
+
+    // 0 = half of the password hashing threads
+    @Value("${app.user-import.max-in-flight-hashes:0}")
+    private int maxInFlightHashes;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Nhập người dùng từ luồng CSV hoặc NDJSON; các dòng lỗi được bỏ qua và ghi vào báo cáo
+     */
+    public UserImportResult importUsers(InputStream input, String format) throws IOException {
+        Map<String, Long> roleIds = roleRegistry.getRoleIds();
+        UserImportResult result = new UserImportResult();
+        long started = System.currentTimeMillis();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowSource source = FORMAT_NDJSON.equals(format) ? new NdjsonSource(reader) : new CsvSource(reader);
+
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        try {
+            ImportRow row;
+            while ((row = source.next()) != null) {
+                result.setTotalRows(result.getTotalRows() + 1);
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    processChunk(chunk, roleIds, result);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            // The reader cannot resync after a broken record; keep what was imported so far
+            processChunk(chunk, roleIds, result);
+            chunk.clear();
+            addError(result, source.currentLine(), null, "Không đọc được file: " + e.getMessage());
+        }
+        processChunk(chunk, roleIds, result);
+
+        logger.info("Imported {} of {} users ({} failed) in {} ms", result.getImported(), result.getTotalRows(),
+                result.getFailed(), System.currentTimeMillis() - started);
+        return result;
+    }
+
+    private void processChunk(List<ImportRow> chunk, Map<String, Long> roleIds, UserImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<ImportRow> valid = new ArrayList<>();
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (ImportRow row : chunk) {
+            if (row.error == null) {
+                validate(row, roleIds);
+            }
+            if (row.error == null && !usernames.add(key(row.username))) {
+                row.error = "Username bị trùng trong file";
+            }
+            if (row.error == null && !emails.add(key(row.email))) {
+                row.error = "Email bị trùng trong file";
+            }
+            if (row.error == null) {
+                valid.add(row);
+            } else {
+                reject(result, row);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        Set<String> existingUsernames = toKeys(userRepository.findExistingUsernames(usernames));
+        Set<String> existingEmails = toKeys(userRepository.findExistingEmails(emails));
+        for (Iterator<ImportRow> it = valid.iterator(); it.hasNext(); ) {
+            ImportRow row = it.next();
+            if (existingUsernames.contains(key(row.username))) {
+                row.error = "Username đã tồn tại";
+            } else if (existingEmails.contains(key(row.email))) {
+                row.error = "Email đã tồn tại";
+            }
+            if (row.error != null) {
+                reject(result, row);
+                it.remove();
+            }
+        }
+
+        hashPasswords(valid);
+        for (Iterator<ImportRow> it = valid.iterator(); it.hasNext(); ) {
+            ImportRow row = it.next();
+            if (row.error != null) {
+                reject(result, row);
+                it.remove();
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(valid));
+            result.setImported(result.getImported() + valid.size());
+        } catch (DataIntegrityViolationException e) {
+            // A user created concurrently collided with the batch; retry row by row to find it
+            for (ImportRow row : valid) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(row)));
+                    result.setImported(result.getImported() + 1);
+                } catch (DataIntegrityViolationException rowError) {
+                    row.error = describeConflict(row, rowError);
+                    reject(result, row);
+                }
+            }
+        }
+    }
+
+    private void validate(ImportRow row, Map<String, Long> roleIds) {
+        if (row.username == null || row.username.length() < 3 || row.username.length() > 50) {
+            row.error = "Username phải từ 3 đến 50 ký tự";
+        } else if (row.email == null || row.email.length() > 100 || !EMAIL_PATTERN.matcher(row.email).matches()) {
+            row.error = "Email không hợp lệ";
+        } else if (row.password == null || row.password.length() < 6 || row.password.length() > 40) {
+            row.error = "Mật khẩu phải từ 6 đến 40 ký tự";
+        } else if (row.fullName == null || row.fullName.length() > 100) {
+            row.error = "Họ tên không được để trống và không vượt quá 100 ký tự";
+        } else if (row.phoneNumber != null && row.phoneNumber.length() > 20) {
+            row.error = "Số điện thoại không được vượt quá 20 ký tự";
+        }
+        if (row.error != null) {
+            return;
+        }
+
+        for (String roleName : row.roleNames) {
+            Long roleId = roleIds.get(roleName);
+            if (roleId == null) {
+                row.error = "Vai trò không tồn tại: " + roleName;
+                return;
+            }
+            row.roleIds.add(roleId);
+        }
+    }
+
+    // A row that fails on its own was hit by a concurrent insert or by some other constraint; say which
+    private String describeConflict(ImportRow row, DataIntegrityViolationException error) {
+        if (Boolean.TRUE.equals(userRepository.existsByUsername(row.username))) {
+            return "Username đã tồn tại";
+        }
+        if (Boolean.TRUE.equals(userRepository.existsByEmail(row.email))) {
+            return "Email đã tồn tại";
+        }
+        logger.warn("Import of line {} rejected by the database: {}", row.line, error.getMostSpecificCause().getMessage());
+        return "Không thể lưu người dùng: " + error.getMostSpecificCause().getMessage();
+    }
+
+    private void hashPasswords(List<ImportRow> rows) {
+        Semaphore permits = new Semaphore(inFlightHashLimit());
+        List<CompletableFuture<String>> hashes = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            permits.acquireUninterruptibly();
+            CompletableFuture<String> hash = encode(row.password);
+            hash.whenComplete((value, error) -> permits.release());
+            hashes.add(hash);
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            ImportRow row = rows.get(i);
+            try {
+                row.passwordHash = hashes.get(i).join();
+            } catch (CompletionException e) {
+                row.error = "Không thể mã hóa mật khẩu";
+            }
+            row.password = null;
+        }
+    }
+
+    // The hashing pool is shared with logins: never take all of its threads, half by default
+    private int inFlightHashLimit() {
+        if (!(passwordEncoder instanceof BoundedPasswordEncoder boundedEncoder)) {
+            return Math.max(1, maxInFlightHashes);
+        }
+        int poolSize = boundedEncoder.getPoolSize();
+        int limit = maxInFlightHashes > 0 ? Math.min(maxInFlightHashes, poolSize - 1) : poolSize / 2;
+        return Math.max(1, limit);
+    }
+
+    private CompletableFuture<String> encode(String rawPassword) {
+        if (!(passwordEncoder instanceof BoundedPasswordEncoder boundedEncoder)) {
+            return CompletableFuture.completedFuture(passwordEncoder.encode(rawPassword));
+        }
+        // The queue is shared with logins; when they fill it, back off instead of failing the row
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return boundedEncoder.encodeAsync(rawPassword);
+            } catch (ServiceOverloadedException e) {
+                if (attempt >= 100) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return CompletableFuture.failedFuture(interrupted);
+                }
+            }
+        }
+    }
+
+    private void insert(List<ImportRow> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_USER_SQL, rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.username);
+            ps.setString(2, row.passwordHash);
+            ps.setString(3, row.email);
+            ps.setString(4, row.fullName);
+            ps.setString(5, row.phoneNumber);
+            ps.setInt(6, row.status);
+            ps.setBoolean(7, row.emailVerified);
+            ps.setTimestamp(8, now);
+            ps.setTimestamp(9, now);
+        });
+
+        // IDENTITY keys are read back by username instead of relying on driver support for batch generated keys
+        Map<String, Long> userIds = new HashMap<>();
+        List<String> usernames = rows.stream().map(row -> row.username).collect(Collectors.toList());
+        jdbcTemplate.query("SELECT id, username FROM users WHERE username IN (" + placeholders(usernames.size()) + ")",
+                rs -> {
+                    userIds.put(key(rs.getString("username")), rs.getLong("id"));
+                }, usernames.toArray());
+
+        List<long[]> userRoles = new ArrayList<>();
+        for (ImportRow row : rows) {
+            Long userId = userIds.get(key(row.username));
+            row.roleIds.forEach(roleId -> userRoles.add(new long[] {userId, roleId}));
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER_ROLE_SQL, userRoles, userRoles.size(), (ps, pair) -> {
+            ps.setLong(1, pair[0]);
+            ps.setLong(2, pair[1]);
+        });
+    }
+
+    private void reject(UserImportResult result, ImportRow row) {
+        addError(result, row.line, row.username, row.error);
+    }
+
+    private void addError(UserImportResult result, int line, String username, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxErrors) {
+            result.getErrors().add(new UserImportResult.RowError(line, username, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private static Set<String> toKeys(List<String> values) {
+        return values.stream().map(UserImportService::key).collect(Collectors.toSet());
+    }
+
+    // MySQL's default collation compares usernames and emails case-insensitively
+    private static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private static String blankToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * One input record; error is set as soon as the row is known to be rejected.
+     */
+    private static final class ImportRow {
+        private final int line;
+        private String username;
+        private String email;
+        private String password;
+        private String passwordHash;
+        private String fullName;
+        private String phoneNumber;
+        private int status = 1;
+        private boolean emailVerified;
+        private final List<String> roleNames = new ArrayList<>();
+        private final List<Long> roleIds = new ArrayList<>();
+        private String error;
+
+        private ImportRow(int line) {
+            this.line = line;
+        }
+
+        private static ImportRow from(int line, Map<String, String> fields) {
+            ImportRow row = new ImportRow(line);
+            row.username = blankToNull(fields.get("username"));
+            row.email = blankToNull(fields.get("email"));
+            row.password = fields.get("password");
+            row.fullName = blankToNull(fields.get("fullname"));
+            row.phoneNumber = blankToNull(fields.get("phonenumber"));
+            row.emailVerified = Boolean.parseBoolean(blankToNull(fields.get("emailverified")));
+
+            String status = blankToNull(fields.get("status"));
+            if (status != null) {
+                try {
+                    row.status = Integer.parseInt(status);
+                } catch (NumberFormatException e) {
+                    row.error = "Trạng thái không hợp lệ: " + status;
+                }
+            }
+
+            String roles = blankToNull(fields.get("roles"));
+            if (roles == null) {
+                row.roleNames.add("USER");
+            } else {
+                for (String role : ROLE_SEPARATOR.split(roles)) {
+                    if (!role.isBlank()) {
+                        row.roleNames.add(role.trim());
+                    }
+                }
+            }
+            return row;
+        }
+    }
+
+    private interface RowSource {
+        ImportRow next() throws IOException;
+
+        int currentLine();
+    }
+
+    /**
+     * CSV with a header row; column names are matched case-insensitively, ignoring '_' (full_name = fullName).
+     */
+    private static final class CsvSource implements RowSource {
+        private final CsvReader csv;
+        private List<String> header;
+
+        private CsvSource(BufferedReader reader) {
+            this.csv = new CsvReader(reader);
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            if (header == null) {
+                List<String> names = csv.readRecord();
+                if (names == null) {
+                    return null;
+                }
+                header = names.stream()
+                        .map(name -> name.trim().replace("_", "").toLowerCase(Locale.ROOT))
+                        .collect(Collectors.toList());
+            }
+
+            List<String> record;
+            do {
+                record = csv.readRecord();
+                if (record == null) {
+                    return null;
+                }
+            } while (record.size() == 1 && record.get(0).isBlank());
+
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < header.size() && i < record.size(); i++) {
+                fields.put(header.get(i), record.get(i));
+            }
+            return ImportRow.from(csv.getRecordLine(), fields);
+        }
+
+        @Override
+        public int currentLine() {
+            return csv.getRecordLine();
+        }
+    }
+
+    /**
+     * One JSON object per line, using the UserAdminDTO field names; roles may be an array or a string.
+     */
+    private final class NdjsonSource implements RowSource {
+        private final BufferedReader reader;
+        private int lineNumber;
+
+        private NdjsonSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                node = null;
+            }
+            if (node == null || !node.isObject()) {
+                ImportRow row = new ImportRow(lineNumber);
+                row.error = "Dòng JSON không hợp lệ";
+                return row;
+            }
+
+            Map<String, String> fields = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                JsonNode value = field.getValue();
+                String text;
+                if (value.isArray()) {
+                    List<String> items = new ArrayList<>();
+                    value.forEach(item -> items.add(item.asText()));
+                    text = String.join(";", items);
+                } else {
+                    text = value.isNull() ? null : value.asText();
+                }
+                fields.put(field.getKey().replace("_", "").toLowerCase(Locale.ROOT), text);
+            });
+            return ImportRow.from(lineNumber, fields);
+        }
+
+        @Override
+        public int currentLine() {
+            return lineNumber;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.app.userservice.dto.UpdatePasswordRequest;
 import com.app.userservice.dto.UpdateProfileRequest;
 import com.app.userservice.entity.user.User;
 import com.app.userservice.repository.UserRepository;
+import com.app.userservice.security.service.SecurityStampService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -23,6 +24,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private SecurityStampService securityStampService;
+    
     /**
      * Get current user information
      */
@@ -95,6 +99,7 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(passwordRequest.getNewPassword()));
         user.setPasswordChangedAt(LocalDateTime.now());
         user.setUpdatedAt(LocalDateTime.now());
+        securityStampService.rotate(user);
         
         // Save updated user
         userRepository.save(user);
@@ -5,25 +5,31 @@ import com.app.userservice.entity.user.User;
 import com.app.userservice.entity.user.UserVerificationToken;
 import com.app.userservice.repository.UserRepository;
 import com.app.userservice.repository.UserVerificationTokenRepository;
-import jakarta.mail.MessagingException;
+import com.app.userservice.security.service.SignedTokenService;
+import com.app.userservice.security.service.SignedTokenService.SignedToken;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 @Service
 public class VerificationService {
 
+    private static final Duration PASSWORD_RESET_TTL = Duration.ofHours(24);
+
     @Autowired
     private UserRepository userRepository;
     
     @Autowired
     private UserVerificationTokenRepository tokenRepository;
     
+    @Autowired
+    private SignedTokenService signedTokenService;
+    
     @Autowired
     private EmailService emailService;
     
@@ -34,26 +40,11 @@ public class VerificationService {
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void sendVerificationEmail(User user) {
         try {
-            // Xóa token cũ nếu có
-            tokenRepository.deleteByUserAndTokenType(user, "EMAIL_VERIFICATION");
-            
-            // Tạo token mới
-            String token = UUID.randomUUID().toString();
-            UserVerificationToken verificationToken = new UserVerificationToken();
-            verificationToken.setUser(user);
-            verificationToken.setToken(token);
-            verificationToken.setTokenType("EMAIL_VERIFICATION");
-            verificationToken.setCreatedAt(LocalDateTime.now());
-            verificationToken.setExpiresAt(LocalDateTime.now().plusSeconds(tokenExpiryMs / 1000));
-            tokenRepository.save(verificationToken);
+            // Token có chữ ký nên không cần lưu; link cũ vẫn hợp lệ cho đến khi hết hạn hoặc email thay đổi
+            String token = signedTokenService.issue(user, "EMAIL_VERIFICATION", Duration.ofMillis(tokenExpiryMs));
             
-            // Gửi email xác thực
-            try {
-                emailService.sendVerificationEmail(user.getEmail(), token);
-            } catch (MessagingException e) {
-                System.err.println("Could not send verification email: " + e.getMessage());
-                // Không ném lại ngoại lệ để tránh đánh dấu giao dịch là rollback-only
-            }
+            // Email được ghi vào outbox và gửi bởi EmailOutboxDispatcher
+            emailService.sendVerificationEmail(user.getEmail(), token);
         } catch (Exception e) {
             System.err.println("Error in verification process: " + e.getMessage());
             // Không ném lại ngoại lệ để tránh đánh dấu giao dịch là rollback-only
@@ -62,29 +53,15 @@ public class VerificationService {
     
     @Transactional
     public MessageResponse verifyEmail(String token) {
-        UserVerificationToken verificationToken = tokenRepository.findByTokenAndTokenType(token, "EMAIL_VERIFICATION")
-                .orElse(null);
-        
-        if (verificationToken == null) {
-            return new MessageResponse("Token không hợp lệ", false);
-        }
-        
-        if (verificationToken.isExpired()) {
-            return new MessageResponse("Token đã hết hạn", false);
-        }
-        
-        if (verificationToken.isUsed()) {
-            return new MessageResponse("Token đã được sử dụng", false);
+        TokenRedemption redemption = redeem(token, "EMAIL_VERIFICATION");
+        if (redemption.getError() != null) {
+            return redemption.getError();
         }
         
-        User user = verificationToken.getUser();
+        User user = redemption.getUser();
         user.setEmailVerified(true);
         userRepository.save(user);
         
-        verificationToken.setUsed(true);
-        verificationToken.setConfirmedAt(LocalDateTime.now());
-        tokenRepository.save(verificationToken);
-        
         return new MessageResponse("Email đã được xác thực thành công", true);
     }
     
@@ -95,49 +72,125 @@ public class VerificationService {
             User user = userRepository.findByEmail(email)
                     .orElseThrow(() -> new RuntimeException("Email không tồn tại"));
             
-            // Xóa token cũ nếu có
-            tokenRepository.deleteByUserAndTokenType(user, "PASSWORD_RESET");
-            
-            // Tạo token mới
-            String token = UUID.randomUUID().toString();
-            UserVerificationToken resetToken = new UserVerificationToken();
-            resetToken.setUser(user);
-            resetToken.setToken(token);
-            resetToken.setTokenType("PASSWORD_RESET");
-            resetToken.setCreatedAt(LocalDateTime.now());
-            resetToken.setExpiresAt(LocalDateTime.now().plusHours(24));
-            tokenRepository.save(resetToken);
+            // Token gắn với mật khẩu hiện tại nên sẽ mất hiệu lực ngay khi mật khẩu được đổi
+            String token = signedTokenService.issue(user, "PASSWORD_RESET", PASSWORD_RESET_TTL);
             
-            // Gửi email đặt lại mật khẩu
-            try {
-                emailService.sendPasswordResetEmail(user.getEmail(), token);
-            } catch (MessagingException e) {
-                System.err.println("Could not send password reset email: " + e.getMessage());
-                // Không ném lại ngoại lệ
-            }
+            emailService.sendPasswordResetEmail(user.getEmail(), token);
         } catch (Exception e) {
             System.err.println("Error in password reset process: " + e.getMessage());
             // Không ném lại ngoại lệ
         }
     }
     
-    @Transactional
+    /**
+     * Kiểm tra token đặt lại mật khẩu; token có chữ ký chỉ cần đọc người dùng theo khóa chính
+     */
+    @Transactional(readOnly = true)
     public MessageResponse validatePasswordResetToken(String token) {
+        if (SignedTokenService.isSigned(token)) {
+            SignedToken signedToken = signedTokenService.verify(token, "PASSWORD_RESET");
+            if (signedToken == null) {
+                return new MessageResponse("Token không hợp lệ", false);
+            }
+            if (signedToken.isExpired()) {
+                return new MessageResponse("Token đã hết hạn", false);
+            }
+            // A reset token is spent once the password (or security stamp) changes
+            User user = userRepository.findById(signedToken.getUserId()).orElse(null);
+            if (!signedTokenService.matches(signedToken, user)) {
+                return new MessageResponse("Token không hợp lệ", false);
+            }
+            return new MessageResponse("Token hợp lệ", true);
+        }
+        
         UserVerificationToken resetToken = tokenRepository.findByTokenAndTokenType(token, "PASSWORD_RESET")
                 .orElse(null);
+        MessageResponse error = checkLegacyToken(resetToken);
+        return error != null ? error : new MessageResponse("Token hợp lệ", true);
+    }
+    
+    /**
+     * Kiểm tra token và đánh dấu đã sử dụng trong giao dịch hiện tại; token UUID cũ vẫn được chấp nhận
+     */
+    @Transactional
+    public TokenRedemption redeem(String token, String tokenType) {
+        if (!SignedTokenService.isSigned(token)) {
+            return redeemLegacy(token, tokenType);
+        }
+        
+        SignedToken signedToken = signedTokenService.verify(token, tokenType);
+        if (signedToken == null) {
+            return TokenRedemption.failed("Token không hợp lệ");
+        }
+        if (signedToken.isExpired()) {
+            return TokenRedemption.failed("Token đã hết hạn");
+        }
+        
+        User user = userRepository.findById(signedToken.getUserId()).orElse(null);
+        if (!signedTokenService.matches(signedToken, user)) {
+            // Email hoặc mật khẩu đã thay đổi sau khi token được phát hành
+            return TokenRedemption.failed("Token không hợp lệ");
+        }
+        if (!signedTokenService.consume(signedToken)) {
+            return TokenRedemption.failed("Token đã được sử dụng");
+        }
+        
+        return new TokenRedemption(user, null);
+    }
+    
+    private TokenRedemption redeemLegacy(String token, String tokenType) {
+        UserVerificationToken verificationToken = tokenRepository.findByTokenAndTokenType(token, tokenType)
+                .orElse(null);
+        MessageResponse error = checkLegacyToken(verificationToken);
+        if (error != null) {
+            return new TokenRedemption(null, error);
+        }
+        
+        verificationToken.setUsed(true);
+        verificationToken.setConfirmedAt(LocalDateTime.now());
+        tokenRepository.save(verificationToken);
         
-        if (resetToken == null) {
+        return new TokenRedemption(verificationToken.getUser(), null);
+    }
+    
+    private MessageResponse checkLegacyToken(UserVerificationToken verificationToken) {
+        if (verificationToken == null) {
             return new MessageResponse("Token không hợp lệ", false);
         }
         
-        if (resetToken.isExpired()) {
+        if (verificationToken.isExpired()) {
             return new MessageResponse("Token đã hết hạn", false);
         }
         
-        if (resetToken.isUsed()) {
+        if (verificationToken.isUsed()) {
             return new MessageResponse("Token đã được sử dụng", false);
         }
         
-        return new MessageResponse("Token hợp lệ", true);
+        return null;
+    }
+    
+    /**
+     * Kết quả của redeem: người dùng sở hữu token, hoặc thông báo lỗi
+     */
+    public static final class TokenRedemption {
+        private final User user;
+        private final MessageResponse error;
+        
+        private TokenRedemption(User user, MessageResponse error) {
+            this.user = user;
+            this.error = error;
+        }
+        
+        private static TokenRedemption failed(String message) {
+            return new TokenRedemption(null, new MessageResponse(message, false));
+        }
+        
+        public User getUser() {
+            return user;
+        }
+        
+        public MessageResponse getError() {
+            return error;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,150 @@
+package com.app.userservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Deletes expired or used user_verification_tokens, expired consumed_tokens, and email_outbox rows
+ * sent longer ago than app.mail.outbox.sent-retention.
+ *
+ * Rows are selected in primary-key order after the last key seen (keyset, no OFFSET) and deleted
+ * by primary key in chunks of chunk-size, each in its own short auto-committed statement, with a
+ * pause between chunks. A run never holds locks for more than one chunk and stops after
+ * max-chunks so a large backlog is spread over several runs.
+ */
+@Component
+public class VerificationTokenSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerificationTokenSweeper.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.security.token-sweeper.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.security.token-sweeper.pause:200}")
+    private long pauseMs;
+
+    @Value("${app.security.token-sweeper.max-chunks:100}")
+    private int maxChunks;
+
+    @Value("${app.mail.outbox.sent-retention:604800000}")
+    private long sentRetentionMs;
+
+    /**
+     * Dọn token hết hạn hoặc đã sử dụng; trả về tổng số bản ghi đã xóa
+     */
+    @Scheduled(fixedDelayString = "${app.security.token-sweeper.interval:3600000}",
+            initialDelayString = "${app.security.token-sweeper.initial-delay:120000}")
+    public int sweep() {
+        long started = System.currentTimeMillis();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int verificationTokens = sweepVerificationTokens(now);
+        int consumedTokens = sweepConsumedTokens(now);
+        Timestamp sentBefore = Timestamp.valueOf(now.toLocalDateTime().minus(Duration.ofMillis(sentRetentionMs)));
+        int sentEmails = sweepSentEmails(sentBefore);
+
+        meterRegistry.counter("verification.tokens.swept", "table", "user_verification_tokens").increment(verificationTokens);
+        meterRegistry.counter("verification.tokens.swept", "table", "consumed_tokens").increment(consumedTokens);
+        meterRegistry.counter("verification.tokens.swept", "table", "email_outbox").increment(sentEmails);
+        if (verificationTokens + consumedTokens + sentEmails > 0) {
+            logger.info("Swept {} verification tokens, {} consumed tokens and {} sent emails in {} ms",
+                    verificationTokens, consumedTokens, sentEmails, System.currentTimeMillis() - started);
+        }
+        return verificationTokens + consumedTokens + sentEmails;
+    }
+
+    private int sweepVerificationTokens(Timestamp now) {
+        int deleted = 0;
+        long lastId = 0;
+        for (int chunk = 0; chunk < maxChunks; chunk++) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM user_verification_tokens WHERE id > ? AND (expires_at <= ? OR is_used = TRUE) " +
+                    "ORDER BY id LIMIT ?", Long.class, lastId, now, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            deleted += jdbcTemplate.update(
+                    "DELETE FROM user_verification_tokens WHERE id IN (" + placeholders(ids.size()) + ")",
+                    ids.toArray());
+            lastId = ids.get(ids.size() - 1);
+            if (ids.size() < chunkSize || !pause()) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private int sweepConsumedTokens(Timestamp now) {
+        int deleted = 0;
+        String lastHash = "";
+        for (int chunk = 0; chunk < maxChunks; chunk++) {
+            List<String> hashes = jdbcTemplate.queryForList(
+                    "SELECT token_hash FROM consumed_tokens WHERE token_hash > ? AND expires_at <= ? " +
+                    "ORDER BY token_hash LIMIT ?", String.class, lastHash, now, chunkSize);
+            if (hashes.isEmpty()) {
+                break;
+            }
+            deleted += jdbcTemplate.update(
+                    "DELETE FROM consumed_tokens WHERE token_hash IN (" + placeholders(hashes.size()) + ")",
+                    hashes.toArray());
+            lastHash = hashes.get(hashes.size() - 1);
+            if (hashes.size() < chunkSize || !pause()) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private int sweepSentEmails(Timestamp sentBefore) {
+        int deleted = 0;
+        long lastId = 0;
+        for (int chunk = 0; chunk < maxChunks; chunk++) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM email_outbox WHERE id > ? AND status = 'SENT' AND sent_at <= ? " +
+                    "ORDER BY id LIMIT ?", Long.class, lastId, sentBefore, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            deleted += jdbcTemplate.update(
+                    "DELETE FROM email_outbox WHERE id IN (" + placeholders(ids.size()) + ")",
+                    ids.toArray());
+            lastId = ids.get(ids.size() - 1);
+            if (ids.size() < chunkSize || !pause()) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.app.userservice.util;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Thread-safe HyperLogLog distinct counter. With precision p it keeps 2^p registers and has a
+ * standard error of about 1.04 / sqrt(2^p). Sketches of the same precision merge by taking the
+ * register-wise maximum, so unions over days, companies or instances cost O(2^p) regardless of
+ * how many values were counted.
+ */
+public class HyperLogLog {
+
+    private final int precision;
+    private final AtomicIntegerArray registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new AtomicIntegerArray(1 << precision);
+    }
+
+    /**
+     * Restore a sketch written by toBytes: one precision byte followed by one byte per register.
+     */
+    public static HyperLogLog fromBytes(byte[] data) {
+        HyperLogLog sketch = new HyperLogLog(data[0]);
+        for (int i = 0; i < sketch.registers.length(); i++) {
+            sketch.registers.set(i, data[i + 1]);
+        }
+        return sketch;
+    }
+
+    public void add(long value) {
+        long hash = Hashing.mix64(value);
+        int index = (int) (hash >>> (64 - precision));
+        // The guard bit bounds the rank when the remaining bits are all zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+
+        int current;
+        do {
+            current = registers.get(index);
+            if (current >= rank) {
+                return;
+            }
+        } while (!registers.compareAndSet(index, current, rank));
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length(); i++) {
+            int rank = other.registers.get(i);
+            int current;
+            do {
+                current = registers.get(i);
+                if (current >= rank) {
+                    break;
+                }
+            } while (!registers.compareAndSet(i, current, rank));
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length();
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            int rank = registers.get(i);
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // Small-range correction: linear counting is more accurate while many registers are empty
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public byte[] toBytes() {
+        byte[] data = new byte[registers.length() + 1];
+        data[0] = (byte) precision;
+        for (int i = 0; i < registers.length(); i++) {
+            data[i + 1] = (byte) registers.get(i);
+        }
+        return data;
+    }
+}
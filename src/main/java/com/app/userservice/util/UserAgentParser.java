@@ -0,0 +1,115 @@
+package com.app.userservice.util;
+
+import java.util.Locale;
+
+/**
+ * Minimal User-Agent classifier: browser family, OS family and device class.
+ *
+ * Tablets are detected before phones, since tablet UAs usually also contain "Mobile" (iPad Safari)
+ * or lack it (Android tablets), which the old substring checks got backwards.
+ */
+public final class UserAgentParser {
+
+    public static final String DEVICE_DESKTOP = "Desktop";
+    public static final String DEVICE_MOBILE = "Mobile";
+    public static final String DEVICE_TABLET = "Tablet";
+    public static final String DEVICE_BOT = "Bot";
+    public static final String UNKNOWN = "Unknown";
+
+    private UserAgentParser() {
+    }
+
+    public static Result parse(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return new Result(UNKNOWN, UNKNOWN, UNKNOWN);
+        }
+        String ua = userAgent.toLowerCase(Locale.ROOT);
+        return new Result(browser(ua), os(ua), deviceClass(ua));
+    }
+
+    private static String deviceClass(String ua) {
+        if (ua.contains("bot") || ua.contains("crawler") || ua.contains("spider")) {
+            return DEVICE_BOT;
+        }
+        if (ua.contains("ipad") || ua.contains("tablet") || ua.contains("kindle") || ua.contains("silk/")
+                || ua.contains("playbook") || (ua.contains("android") && !ua.contains("mobile"))) {
+            return DEVICE_TABLET;
+        }
+        if (ua.contains("mobi") || ua.contains("iphone") || ua.contains("ipod") || ua.contains("windows phone")) {
+            return DEVICE_MOBILE;
+        }
+        return DEVICE_DESKTOP;
+    }
+
+    // Order matters: Edge and Opera also announce Chrome, and Chrome also announces Safari
+    private static String browser(String ua) {
+        if (ua.contains("edg/") || ua.contains("edga/") || ua.contains("edgios/")) {
+            return "Edge";
+        }
+        if (ua.contains("opr/") || ua.contains("opera")) {
+            return "Opera";
+        }
+        if (ua.contains("samsungbrowser/")) {
+            return "Samsung Internet";
+        }
+        if (ua.contains("chrome/") || ua.contains("crios/")) {
+            return "Chrome";
+        }
+        if (ua.contains("firefox/") || ua.contains("fxios/")) {
+            return "Firefox";
+        }
+        if (ua.contains("safari/")) {
+            return "Safari";
+        }
+        if (ua.contains("msie") || ua.contains("trident/")) {
+            return "Internet Explorer";
+        }
+        return "Other";
+    }
+
+    private static String os(String ua) {
+        if (ua.contains("windows")) {
+            return "Windows";
+        }
+        if (ua.contains("iphone") || ua.contains("ipad") || ua.contains("ipod")) {
+            return "iOS";
+        }
+        if (ua.contains("mac os x") || ua.contains("macintosh")) {
+            return "macOS";
+        }
+        if (ua.contains("android")) {
+            return "Android";
+        }
+        if (ua.contains("cros")) {
+            return "ChromeOS";
+        }
+        if (ua.contains("linux")) {
+            return "Linux";
+        }
+        return "Other";
+    }
+
+    public static final class Result {
+        private final String browser;
+        private final String os;
+        private final String deviceClass;
+
+        Result(String browser, String os, String deviceClass) {
+            this.browser = browser;
+            this.os = os;
+            this.deviceClass = deviceClass;
+        }
+
+        public String getBrowser() {
+            return browser;
+        }
+
+        public String getOs() {
+            return os;
+        }
+
+        public String getDeviceClass() {
+            return deviceClass;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.app.userservice.security.service;
+
+import com.app.userservice.entity.user.User;
+import com.app.userservice.security.service.SignedTokenService.SignedToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedTokenServiceTest {
+
+    private SignedTokenService signedTokenService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        signedTokenService = new SignedTokenService();
+        ReflectionTestUtils.setField(signedTokenService, "secret", "test-secret");
+        signedTokenService.init();
+
+        user = new User();
+        user.setId(42L);
+        user.setEmail("user@example.com");
+        user.setPassword("$2a$10$hash");
+    }
+
+    @Test
+    void issuedTokenVerifiesWithoutStorage() {
+        String token = signedTokenService.issue(user, "PASSWORD_RESET", Duration.ofHours(1));
+
+        SignedToken verified = signedTokenService.verify(token, "PASSWORD_RESET");
+        assertNotNull(verified);
+        assertEquals(42L, verified.getUserId());
+        assertFalse(verified.isExpired());
+        assertTrue(signedTokenService.matches(verified, user));
+        assertEquals(64, verified.getTokenHash().length());
+    }
+
+    @Test
+    void rejectsTamperedOrMistypedTokens() {
+        String token = signedTokenService.issue(user, "EMAIL_VERIFICATION", Duration.ofHours(1));
+
+        assertNull(signedTokenService.verify(token, "PASSWORD_RESET"));
+        assertNull(signedTokenService.verify(token.substring(0, token.length() - 2) + "AA", "EMAIL_VERIFICATION"));
+        assertNull(signedTokenService.verify("not.a-token", "EMAIL_VERIFICATION"));
+        assertFalse(SignedTokenService.isSigned("3f1c7a52-1b7e-4a0f-9c55-2f6d1f0e8a11"));
+    }
+
+    @Test
+    void expiredTokenIsReportedAsExpired() {
+        String token = signedTokenService.issue(user, "EMAIL_VERIFICATION", Duration.ofSeconds(-1));
+
+        SignedToken verified = signedTokenService.verify(token, "EMAIL_VERIFICATION");
+        assertNotNull(verified);
+        assertTrue(verified.isExpired());
+    }
+
+    @Test
+    void passwordChangeInvalidatesResetToken() {
+        String token = signedTokenService.issue(user, "PASSWORD_RESET", Duration.ofHours(1));
+        SignedToken verified = signedTokenService.verify(token, "PASSWORD_RESET");
+
+        user.setPassword("$2a$10$otherhash");
+        assertFalse(signedTokenService.matches(verified, user));
+    }
+}
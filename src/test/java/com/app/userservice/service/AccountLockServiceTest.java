@@ -0,0 +1,100 @@
+package com.app.userservice.service;
+
+import com.app.userservice.entity.user.User;
+import com.app.userservice.repository.UserRepository;
+import com.app.userservice.security.service.SecurityStampService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({AccountLockService.class, SecurityStampService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.security.max-failed-attempts=5"
+})
+class AccountLockServiceTest {
+
+    private static final int PARALLEL_FAILURES = 300;
+
+    @Autowired
+    private AccountLockService accountLockService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void createUser() {
+        User user = new User();
+        user.setUsername("concurrent");
+        user.setEmail("concurrent@example.com");
+        user.setPassword("hash");
+        userRepository.save(user);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void parallelFailuresAreCountedExactlyAndLockOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < PARALLEL_FAILURES; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return accountLockService.increaseFailedAttempts("concurrent");
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        User user = userRepository.findByUsername("concurrent").orElseThrow();
+        assertEquals(PARALLEL_FAILURES, user.getFailedAttempt());
+        assertFalse(user.isAccountNonLocked());
+        assertNotNull(user.getLockTime());
+        assertEquals(1, user.getSecurityStamp());
+    }
+
+    @Test
+    void belowLimitOnlyIncrements() {
+        for (int i = 1; i < 5; i++) {
+            var result = accountLockService.increaseFailedAttempts("concurrent");
+            assertEquals(i, result.getFailedAttempt());
+            assertTrue(result.isAccountNonLocked());
+        }
+
+        var result = accountLockService.increaseFailedAttempts("concurrent");
+        assertEquals(5, result.getFailedAttempt());
+        assertFalse(result.isAccountNonLocked());
+    }
+
+    @Test
+    void unknownUserReturnsNull() {
+        assertNull(accountLockService.increaseFailedAttempts("missing"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.app.userservice.service;
+
+import com.app.userservice.entity.user.EmailOutbox;
+import com.app.userservice.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.mail.MailSenderAutoConfiguration;
+import org.springframework.boot.autoconfigure.thymeleaf.ThymeleafAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({EmailOutboxDispatcher.class, EmailOutboxService.class, EmailService.class,
+        EmailOutboxDispatcherTest.MetricsConfig.class})
+@ImportAutoConfiguration({ThymeleafAutoConfiguration.class, MailSenderAutoConfiguration.class,
+        JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=noreply@example.com",
+        "spring.mail.password=secret",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "app.mail.outbox.rate-per-second=100"
+})
+class EmailOutboxDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("noreply@example.com", "secret"));
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @AfterEach
+    void clearOutbox() {
+        emailOutboxRepository.deleteAll();
+    }
+
+    @Test
+    void deliversQueuedEmailsInOneBatch() throws Exception {
+        emailService.sendVerificationEmail("a@example.com", "token-a");
+        emailService.sendVerificationEmail("b@example.com", "token-b");
+        emailService.sendPasswordResetEmail("c@example.com", "token-c");
+
+        assertEquals(3, dispatcher.dispatch());
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(3, received.length);
+        assertEquals("Xác nhận email của bạn", received[0].getSubject());
+        assertTrue(GreenMailUtil.getBody(received[0]).contains("token-a"));
+
+        List<EmailOutbox> outbox = emailOutboxRepository.findAll();
+        assertTrue(outbox.stream().allMatch(email -> EmailOutbox.STATUS_SENT.equals(email.getStatus())));
+        assertEquals(0, dispatcher.dispatch());
+    }
+
+    @Test
+    void failedDeliveryIsRetriedLater() {
+        greenMail.stop();
+        emailService.sendVerificationEmail("a@example.com", "token-a");
+
+        assertEquals(0, dispatcher.dispatch());
+
+        EmailOutbox email = emailOutboxRepository.findAll().get(0);
+        assertEquals(EmailOutbox.STATUS_PENDING, email.getStatus());
+        assertEquals(1, email.getAttempts());
+        assertNotNull(email.getLastError());
+        assertTrue(email.getNextAttemptAt().isAfter(LocalDateTime.now()));
+
+        // Not due yet, so the next run does not retry it
+        assertEquals(0, dispatcher.dispatch());
+    }
+
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.app.userservice.service;
+
+import com.app.userservice.dto.UpdatePasswordRequest;
+import com.app.userservice.entity.user.User;
+import com.app.userservice.exception.TokenRefreshException;
+import com.app.userservice.repository.RefreshTokenRepository;
+import com.app.userservice.repository.UserRepository;
+import com.app.userservice.security.jwt.JwtUtils;
+import com.app.userservice.security.service.SecurityStampService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({RefreshTokenService.class, UserService.class, SecurityStampService.class, RefreshTokenServiceTest.EncoderConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.jwt.refresh-expiration=604800000"
+})
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @MockitoBean
+    private JwtUtils jwtUtils;
+
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        user = new User();
+        user.setUsername("refresher");
+        user.setEmail("refresher@example.com");
+        user.setPassword(passwordEncoder.encode("oldSecret"));
+        user = userRepository.save(user);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        refreshTokenRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void rotatesWhileTheStampIsUnchanged() {
+        String refreshToken = refreshTokenService.issue(user, "family-1");
+
+        Map<String, Object> response = refreshTokenService.rotate(refreshToken);
+
+        assertNotNull(response.get("refreshToken"));
+        assertNotEquals(refreshToken, response.get("refreshToken"));
+    }
+
+    @Test
+    void passwordChangeEndsRefresh() {
+        String refreshToken = refreshTokenService.issue(user, "family-1");
+
+        UpdatePasswordRequest request = new UpdatePasswordRequest();
+        request.setCurrentPassword("oldSecret");
+        request.setNewPassword("newSecret");
+        request.setConfirmPassword("newSecret");
+        assertTrue(userService.changePassword(user.getId(), request).isSuccess());
+
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.rotate(refreshToken));
+        assertTrue(refreshTokenRepository.findAll().stream().allMatch(token -> token.getRevokedAt() != null));
+    }
+
+    @TestConfiguration
+    static class EncoderConfig {
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+}
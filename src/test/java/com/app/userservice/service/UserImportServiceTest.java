@@ -0,0 +1,210 @@
+package com.app.userservice.service;
+
+import com.app.userservice.dto.UserImportResult;
+import com.app.userservice.entity.user.Role;
+import com.app.userservice.entity.user.User;
+import com.app.userservice.repository.RoleRepository;
+import com.app.userservice.repository.UserRepository;
+import com.app.userservice.security.crypto.BoundedPasswordEncoder;
+import com.app.userservice.security.crypto.PasswordHashingExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({UserImportService.class, RoleRegistry.class, UserImportServiceTest.EncoderConfig.class})
+@ImportAutoConfiguration({JacksonAutoConfiguration.class, JdbcTemplateAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.user-import.chunk-size=2"
+})
+class UserImportServiceTest {
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @BeforeEach
+    void setUp() {
+        for (String name : new String[] {"USER", "ADMIN"}) {
+            Role role = new Role();
+            role.setName(name);
+            roleRepository.save(role);
+        }
+        roleRegistry.refresh();
+
+        User existing = new User();
+        existing.setUsername("existing");
+        existing.setEmail("existing@example.com");
+        existing.setPassword("hash");
+        userRepository.save(existing);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+    }
+
+    @Test
+    void importsCsvInChunksAndReportsBadRows() throws Exception {
+        String csv = "username,email,password,full_name,roles\n"
+                + "alice,alice@example.com,secret1,\"Alice, A.\",USER;ADMIN\n"
+                + "bob,bob@example.com,secret2,Bob,\n"
+                + "\n"
+                + "existing,other@example.com,secret3,Dup,USER\n"
+                + "carol,carol@example.com,secret4,Carol,MISSING\n"
+                + "BOB,bob2@example.com,secret5,Bob again,USER\n"
+                + "dave,dave@example.com,123,Dave,USER\n";
+
+        UserImportResult result = userImportService.importUsers(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), UserImportService.FORMAT_CSV);
+
+        assertEquals(6, result.getTotalRows());
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getFailed());
+        assertEquals(List.of(5, 6, 7, 8), result.getErrors().stream()
+                .map(UserImportResult.RowError::getLine).sorted().toList());
+
+        User alice = userRepository.findByUsername("alice").orElseThrow();
+        assertEquals("Alice, A.", alice.getFullName());
+        assertEquals(2, alice.getRoles().size());
+        assertTrue(passwordEncoder.matches("secret1", alice.getPassword()));
+        assertEquals(1, userRepository.findByUsername("bob").orElseThrow().getRoles().size());
+    }
+
+    @Test
+    void importsNdjsonAndReportsMalformedLines() throws Exception {
+        String ndjson = "{\"username\":\"erin\",\"email\":\"erin@example.com\",\"password\":\"secret1\",\"fullName\":\"Erin\",\"roles\":[\"USER\"]}\n"
+                + "not json\n"
+                + "{\"username\":\"frank\",\"email\":\"frank@example.com\",\"password\":\"secret2\",\"fullName\":\"Frank\",\"status\":0}\n";
+
+        UserImportResult result = userImportService.importUsers(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), UserImportService.FORMAT_NDJSON);
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2, result.getErrors().get(0).getLine());
+        assertFalse(result.isErrorsTruncated());
+        assertEquals(0, userRepository.findByUsername("frank").orElseThrow().getStatus());
+    }
+
+    @Test
+    void backsOffWhileLoginsFillTheHashingPool() throws Exception {
+        // Occupy both hashing threads and the single queue slot, as a login burst would
+        Semaphore started = new Semaphore(0);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            passwordHashingExecutor.submit("matches", () -> {
+                started.release();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            });
+            // Idle workers take queued tasks one at a time; wait so each blocker leaves the queue
+            if (i < 2) {
+                started.acquire();
+            }
+        }
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        });
+        releaser.start();
+
+        StringBuilder csv = new StringBuilder("username,email,password,full_name\n");
+        for (int i = 0; i < 6; i++) {
+            csv.append("user").append(i).append(",user").append(i).append("@example.com,secret").append(i)
+                    .append(",User ").append(i).append('\n');
+        }
+        UserImportResult result = userImportService.importUsers(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), UserImportService.FORMAT_CSV);
+        releaser.join();
+
+        assertEquals(6, result.getImported());
+        assertEquals(0, result.getFailed());
+        assertTrue(passwordEncoder.matches("secret5", userRepository.findByUsername("user5").orElseThrow().getPassword()));
+        // Two hashing threads: the import keeps to one of them
+        assertEquals(1, CountingEncoder.maxConcurrent.get());
+    }
+
+    @TestConfiguration
+    static class EncoderConfig {
+        @Bean
+        PasswordHashingExecutor passwordHashingExecutor() {
+            return new PasswordHashingExecutor(new SimpleMeterRegistry(), 2, 1, 5000);
+        }
+
+        @Bean
+        PasswordEncoder passwordEncoder(PasswordHashingExecutor passwordHashingExecutor) {
+            return new BoundedPasswordEncoder(new CountingEncoder(), passwordHashingExecutor);
+        }
+    }
+
+    /**
+     * BCrypt that records how many encodes ran at the same time.
+     */
+    static class CountingEncoder extends BCryptPasswordEncoder {
+        static final AtomicInteger maxConcurrent = new AtomicInteger();
+        private static final AtomicInteger running = new AtomicInteger();
+
+        CountingEncoder() {
+            super(4);
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                return super.encode(rawPassword);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+}